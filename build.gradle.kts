@@ -19,10 +19,24 @@ dependencies {
     implementation("ch.obermuhlner:big-math:2.3.0")
     testImplementation(platform("org.junit:junit-bom:5.10.0"))
     testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+// The SIMD expression backend uses the incubating Vector API
+tasks.withType<JavaCompile> {
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
 }
 
 tasks.test {
     useJUnitPlatform()
+    jvmArgs("--add-modules", "jdk.incubator.vector")
+}
+
+// Plain timing benchmarks under src/test, e.g. ./gradlew benchmark -Pbenchmark=FastTrigBenchmark
+tasks.register<JavaExec>("benchmark") {
+    classpath = sourceSets.test.get().runtimeClasspath
+    mainClass.set("com.gloatyuk.solvex." + providers.gradleProperty("benchmark").getOrElse("FastTrigBenchmark"))
+    jvmArgs("--add-modules", "jdk.incubator.vector")
 }
 
 val fatJar = tasks.register<Jar>("fatJar") {
@@ -0,0 +1,212 @@
+package com.gloatyuk.solvex;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * A postfix expression compiled into a flat program that can be evaluated over
+ * large arrays of inputs.
+ *
+ * One variable is bound to the input values, every other variable is read from
+ * {@link Main#variables} once at compile time. The program runs block by block,
+ * applying each instruction to a whole block of values before moving on to the next,
+ * so the per-token dispatch of {@link Main#evaluatePostfix} is paid once per block
+ * instead of once per value.
+ *
+ * When the "vectorMode" setting is enabled and the jdk.incubator.vector module is
+ * present (run with --add-modules jdk.incubator.vector), blocks are evaluated across
+ * SIMD lanes by {@link VectorEvaluator}. Otherwise the scalar loops here are used.
+ */
+public final class CompiledExpression {
+    // Instruction opcodes
+    static final int CONST = 0;
+    static final int INPUT = 1;
+    static final int FUNCTION = 2;
+    static final int ADD = 3;
+    static final int SUB = 4;
+    static final int MUL = 5;
+    static final int DIV = 6;
+    static final int MOD = 7;
+    static final int POW = 8;
+
+    // Number of values evaluated per instruction before moving to the next one
+    static final int BLOCK_SIZE = 1024;
+
+    private static final boolean VECTOR_MODULE_PRESENT =
+            ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    final int[] ops;
+    final double[] constants;
+    final String[] functionNames;
+    final List<Function<Double, Double>> functions;
+    final int maxDepth;
+
+    private CompiledExpression(int[] ops, double[] constants, String[] functionNames,
+                               List<Function<Double, Double>> functions, int maxDepth) {
+        this.ops = ops;
+        this.constants = constants;
+        this.functionNames = functionNames;
+        this.functions = functions;
+        this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Compiles an infix equation such as "sin(X) * 2 + Y".
+     *
+     * @param equation The mathematical expression in infix notation
+     * @param inputVariable The variable bound to each input value, e.g. "X"
+     * @return The compiled expression
+     */
+    public static CompiledExpression compile(String equation, String inputVariable) {
+        return compile(Main.toPostfix(equation.replaceAll("\\s", "")), inputVariable);
+    }
+
+    /**
+     * Compiles a postfix token list produced by {@link Main#toPostfix}.
+     *
+     * @param postfix List of tokens in postfix notation
+     * @param inputVariable The variable bound to each input value, e.g. "X"
+     * @return The compiled expression
+     * @throws IllegalArgumentException if the expression is malformed or uses an unknown variable
+     */
+    public static CompiledExpression compile(List<String> postfix, String inputVariable) {
+        int n = postfix.size();
+        int[] ops = new int[n];
+        double[] constants = new double[n];
+        String[] functionNames = new String[n];
+        List<Function<Double, Double>> functions = new ArrayList<>(Collections.nCopies(n, null));
+        int depth = 0;
+        int maxDepth = 0;
+
+        for (int p = 0; p < n; p++) {
+            String token = postfix.get(p);
+            if (Main.isOperator(token.charAt(0)) && token.length() == 1) {
+                ops[p] = switch (token.charAt(0)) {
+                    case '+' -> ADD;
+                    case '-' -> SUB;
+                    case '*' -> MUL;
+                    case '/' -> DIV;
+                    case '%' -> MOD;
+                    default -> POW;
+                };
+                depth -= 1;
+            }
+            else if (Main.trigFunctions.containsKey(token)) {
+                ops[p] = FUNCTION;
+                functionNames[p] = token;
+                functions.set(p, Main.trigFunction(token));
+            }
+            else if (token.equalsIgnoreCase(inputVariable)) {
+                ops[p] = INPUT;
+                depth += 1;
+            }
+            else if (Character.isLetter(token.charAt(0))) {
+                // Other variables are fixed for the lifetime of the compiled program
+                Double value = Main.variables.get(token);
+                if (value == null) {
+                    throw new IllegalArgumentException("Unknown variable: " + token);
+                }
+                ops[p] = CONST;
+                constants[p] = value;
+                depth += 1;
+            }
+            else {
+                ops[p] = CONST;
+                constants[p] = Double.parseDouble(token);
+                depth += 1;
+            }
+            if (depth < 1) {
+                throw new IllegalArgumentException("Malformed expression: " + String.join(" ", postfix));
+            }
+            maxDepth = Math.max(maxDepth, depth);
+        }
+        if (depth != 1) {
+            throw new IllegalArgumentException("Malformed expression: " + String.join(" ", postfix));
+        }
+        return new CompiledExpression(ops, constants, functionNames, functions, maxDepth);
+    }
+
+    /**
+     * Checks whether the SIMD backend can be used in this JVM.
+     *
+     * @return true if the jdk.incubator.vector module is present
+     */
+    public static boolean isVectorSupported() {
+        return VECTOR_MODULE_PRESENT;
+    }
+
+    /**
+     * Evaluates the expression for every input value.
+     *
+     * @param inputs The values of the input variable
+     * @return The calculated results, one per input
+     */
+    public double[] evaluate(double[] inputs) {
+        double[] output = new double[inputs.length];
+        evaluate(inputs, output, 0, inputs.length);
+        return output;
+    }
+
+    /**
+     * Evaluates the expression for inputs[from, to) and writes the results to the
+     * same positions of output.
+     *
+     * @param inputs The values of the input variable
+     * @param output The array to write results to
+     * @param from The first index to evaluate
+     * @param to One past the last index to evaluate
+     */
+    public void evaluate(double[] inputs, double[] output, int from, int to) {
+        boolean vector = VECTOR_MODULE_PRESENT && Boolean.TRUE.equals(Main.settings.get("vectorMode"));
+        double[][] stack = new double[maxDepth][Math.min(BLOCK_SIZE, to - from)];
+        for (int start = from; start < to; start += BLOCK_SIZE) {
+            int length = Math.min(BLOCK_SIZE, to - start);
+            if (vector) {
+                VectorEvaluator.evaluateBlock(this, inputs, start, length, stack);
+            }
+            else {
+                evaluateBlock(inputs, start, length, stack);
+            }
+            System.arraycopy(stack[0], 0, output, start, length);
+        }
+    }
+
+    /**
+     * Scalar evaluation of one block, leaving the results in stack[0].
+     */
+    private void evaluateBlock(double[] inputs, int start, int length, double[][] stack) {
+        int sp = 0;
+        for (int p = 0; p < ops.length; p++) {
+            switch (ops[p]) {
+                case CONST -> Arrays.fill(stack[sp++], 0, length, constants[p]);
+                case INPUT -> System.arraycopy(inputs, start, stack[sp++], 0, length);
+                case FUNCTION -> {
+                    double[] a = stack[sp - 1];
+                    Function<Double, Double> function = functions.get(p);
+                    for (int i = 0; i < length; i++) {
+                        a[i] = function.apply(a[i]);
+                    }
+                }
+                default -> {
+                    double[] b = stack[--sp];
+                    double[] a = stack[sp - 1];
+                    applyBinary(ops[p], a, b, 0, length);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies a binary operator to a[from, to) and b[from, to), storing the result in a.
+     */
+    static void applyBinary(int op, double[] a, double[] b, int from, int to) {
+        switch (op) {
+            case ADD -> { for (int i = from; i < to; i++) a[i] = a[i] + b[i]; }
+            case SUB -> { for (int i = from; i < to; i++) a[i] = a[i] - b[i]; }
+            case MUL -> { for (int i = from; i < to; i++) a[i] = a[i] * b[i]; }
+            case DIV -> { for (int i = from; i < to; i++) a[i] = a[i] / b[i]; }
+            case MOD -> { for (int i = from; i < to; i++) a[i] = a[i] % b[i]; }
+            case POW -> { for (int i = from; i < to; i++) a[i] = Math.pow(a[i], b[i]); }
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.gloatyuk.solvex;
+
+/**
+ * Fast approximations of the trigonometric and hyperbolic functions, used when the
+ * "fastMath" setting is enabled.
+ *
+ * Trig functions are table driven. x is split as a + r, where a is the nearest multiple of
+ * pi/256 and |r| <= pi/512, using a Cody-Waite reduction. sin(a) and cos(a) come from a
+ * table of sines over one period, stored as a double plus its rounding error, and sin(r)
+ * and cos(r) are short Taylor polynomials. The angle addition formulas then give sin and
+ * cos, and tan divides the two. This skips the extra-precision steps that {@link Math}
+ * uses to stay within 1 ULP.
+ * Hyperbolic functions are built on a range-reduced exponential and a Taylor polynomial near zero.
+ *
+ * Maximum observed error against {@link Math} over the supported range:
+ *   sin, cos        - 2 ULP for |x| <= 2^20, Math beyond that
+ *   tan             - 4 ULP for |x| <= 2^20, Math beyond that
+ *   sinh            - 2 ULP for |x| <= 709, Math beyond that
+ *   cosh            - 1 ULP for |x| <= 709, Math beyond that
+ *   tanh            - 4 ULP
+ * The reciprocal functions (csc, sec, cot, csch, sech, coth) add at most 1 ULP on top of these.
+ */
+public final class FastTrig {
+    // Arguments above this are reduced by Math instead, the split of pi/256 runs out of bits
+    private static final double REDUCTION_LIMIT = 0x1p20;
+
+    // Below this sin(x) and tan(x) round to x, returning x also keeps the sign of -0.0
+    private static final double TINY = 0x1p-27;
+
+    // Table steps per pi, the table holds sin(j * pi / STEPS) for one full period
+    private static final int STEPS = 256;
+    private static final int TABLE_MASK = 2 * STEPS - 1;
+    private static final int QUARTER = STEPS / 2;
+
+    // pi/256 split into three 25-bit parts plus a tail, so k * PI_N is exact for |k| < 2^28
+    private static final double STEPS_OVER_PI = 0x1.45f306dc9c883p+6;
+    private static final double PI_1 = 0x1.921fb5p-7;
+    private static final double PI_2 = 0x1.110b46p-33;
+    private static final double PI_3 = 0x1.1a6263p-61;
+    private static final double PI_3T = 0x1.8a2e03707344ap-88;
+
+    // Adding this to a double below 2^51 rounds it to an integer held in the low mantissa bits
+    private static final double SHIFTER = 0x1.8p52;
+
+    // sin(pi/256) and cos(pi/256) as double-double pairs, used to build the table
+    private static final double SIN_STEP = 0x1.921d1fcdec784p-7;
+    private static final double SIN_STEP_LO = 0x1.9878ebe836d9dp-61;
+    private static final double COS_STEP = 0x1.fff62169b92dbp-1;
+    private static final double COS_STEP_LO = 0x1.5dda3c81fbd0dp-55;
+
+    private static final double[] SIN_HI = new double[2 * STEPS];
+    private static final double[] SIN_LO = new double[2 * STEPS];
+
+    // ln(2) split in two, and the rational approximation coefficients for exp on [-ln2/2, ln2/2]
+    private static final double LN2_HI = 6.93147180369123816490e-01;
+    private static final double LN2_LO = 1.90821492927058770002e-10;
+    private static final double INV_LN2 = 1.44269504088896338700e+00;
+    private static final double P1 = 1.66666666666666019037e-01;
+    private static final double P2 = -2.77777777770155933842e-03;
+    private static final double P3 = 6.61375632143793436117e-05;
+    private static final double P4 = -1.65339022054652515390e-06;
+    private static final double P5 = 4.13813679705723846039e-08;
+
+    // Above this exp overflows, so the hyperbolic functions hand over to Math
+    private static final double EXP_LIMIT = 709.0;
+
+    static {
+        // Step through the first quarter period with the angle addition formulas in
+        // double-double and mirror it, which keeps the zeros exact. After 128 steps the
+        // rounding drift stays below 2^-100, far below the low half of each entry.
+        double[] sine = {0, 0};
+        double[] cosine = {1, 0};
+        double[] next = new double[2];
+        for (int j = 0; j <= QUARTER; j++) {
+            for (int index : new int[] {j, STEPS - j}) {
+                SIN_HI[index] = sine[0];
+                SIN_LO[index] = sine[1];
+                // 0.0 - x rather than -x so the zeros stay positive
+                SIN_HI[(index + STEPS) & TABLE_MASK] = 0.0 - sine[0];
+                SIN_LO[(index + STEPS) & TABLE_MASK] = 0.0 - sine[1];
+            }
+            // sin(a + step) = sin(a) cos(step) + cos(a) sin(step)
+            twoProducts(sine[0], sine[1], COS_STEP, COS_STEP_LO, cosine[0], cosine[1], SIN_STEP, SIN_STEP_LO, next);
+            // cos(a + step) = cos(a) cos(step) - sin(a) sin(step)
+            twoProducts(cosine[0], cosine[1], COS_STEP, COS_STEP_LO, -sine[0], -sine[1], SIN_STEP, SIN_STEP_LO, cosine);
+            sine[0] = next[0];
+            sine[1] = next[1];
+        }
+    }
+
+    private FastTrig() {}
+
+    /**
+     * Fast sine of an angle in radians.
+     *
+     * @param x The angle in radians
+     * @return The approximate sine of x
+     */
+    public static double sin(double x) {
+        if (!(Math.abs(x) <= REDUCTION_LIMIT)) {
+            return Math.sin(x);
+        }
+        if (Math.abs(x) < TINY) {
+            return x;
+        }
+        return sinOffset(x, 0);
+    }
+
+    /**
+     * Fast cosine of an angle in radians.
+     *
+     * @param x The angle in radians
+     * @return The approximate cosine of x
+     */
+    public static double cos(double x) {
+        if (!(Math.abs(x) <= REDUCTION_LIMIT)) {
+            return Math.cos(x);
+        }
+        // cos(x) = sin(x + pi/2), shifting the table index instead of x keeps it exact
+        return sinOffset(x, QUARTER);
+    }
+
+    /**
+     * Fast tangent of an angle in radians.
+     *
+     * @param x The angle in radians
+     * @return The approximate tangent of x
+     */
+    public static double tan(double x) {
+        if (!(Math.abs(x) <= REDUCTION_LIMIT)) {
+            return Math.tan(x);
+        }
+        if (Math.abs(x) < TINY) {
+            return x;
+        }
+        double shifted = x * STEPS_OVER_PI + SHIFTER;
+        double r = reduce(x, shifted - SHIFTER);
+        int j = (int) Double.doubleToRawLongBits(shifted);
+        int jc = j + QUARTER;
+        double z = r * r;
+        double s = r + sinTail(r, z);
+        double c = cosTail(z);
+        double sa = SIN_HI[j & TABLE_MASK];
+        double ca = SIN_HI[jc & TABLE_MASK];
+        // sin(a + r) / cos(a + r), exact table zeros keep both accurate near the zeros and poles
+        double sine = sa + (SIN_LO[j & TABLE_MASK] + (ca * s + sa * c));
+        double cosine = ca + (SIN_LO[jc & TABLE_MASK] + (ca * c - sa * s));
+        return sine / cosine;
+    }
+
+    /**
+     * Fast hyperbolic sine.
+     *
+     * @param x The input value
+     * @return The approximate hyperbolic sine of x
+     */
+    public static double sinh(double x) {
+        double ax = Math.abs(x);
+        if (ax < 1.0) {
+            return sinhSeries(x);
+        }
+        if (!(ax <= EXP_LIMIT)) {
+            return Math.sinh(x);
+        }
+        double e = exp(ax);
+        double result = 0.5 * (e - 1.0 / e);
+        return x < 0 ? -result : result;
+    }
+
+    /**
+     * Fast hyperbolic cosine.
+     *
+     * @param x The input value
+     * @return The approximate hyperbolic cosine of x
+     */
+    public static double cosh(double x) {
+        double ax = Math.abs(x);
+        if (!(ax <= EXP_LIMIT)) {
+            return Math.cosh(x);
+        }
+        double e = exp(ax);
+        return 0.5 * (e + 1.0 / e);
+    }
+
+    /**
+     * Fast hyperbolic tangent.
+     *
+     * @param x The input value
+     * @return The approximate hyperbolic tangent of x
+     */
+    public static double tanh(double x) {
+        double ax = Math.abs(x);
+        if (ax < 1.0) {
+            // Avoid the cancellation in 1 - 2/(e^2x + 1) near zero
+            return sinhSeries(x) / cosh(x);
+        }
+        if (ax > 22.0) {
+            // tanh(22) rounds to 1.0 in double precision
+            return Math.copySign(1.0, x);
+        }
+        double result = 1.0 - 2.0 / (exp(2 * ax) + 1.0);
+        return x < 0 ? -result : result;
+    }
+
+    /**
+     * Computes a * b + c * d where each value is a double-double (hi, lo) pair, storing the
+     * result pair in out. Only used to build the table.
+     */
+    private static void twoProducts(double a, double aLo, double b, double bLo,
+                                    double c, double cLo, double d, double dLo, double[] out) {
+        double p = a * b;
+        double pError = Math.fma(a, b, -p) + (a * bLo + aLo * b);
+        double q = c * d;
+        double qError = Math.fma(c, d, -q) + (c * dLo + cLo * d);
+        double sum = p + q;
+        double v = sum - p;
+        double error = (p - (sum - v)) + (q - v) + pError + qError;
+        out[0] = sum + error;
+        out[1] = error - (out[0] - sum);
+    }
+
+    /**
+     * Sine of x plus offset steps of pi/256, for |x| <= 2^20.
+     */
+    private static double sinOffset(double x, int offset) {
+        // Rounds x / (pi/256) to the nearest integer k, whose low bits land in the mantissa of shifted
+        double shifted = x * STEPS_OVER_PI + SHIFTER;
+        double r = reduce(x, shifted - SHIFTER);
+        int j = ((int) Double.doubleToRawLongBits(shifted) + offset) & TABLE_MASK;
+        double z = r * r;
+        double sa = SIN_HI[j];
+        double ca = SIN_HI[(j + QUARTER) & TABLE_MASK];
+        // sin(a + r) = sin(a) + cos(a) * r + (cos(a) * (sin(r) - r) + sin(a) * (cos(r) - 1))
+        return sa + ((SIN_LO[j] + ca * r) + (ca * sinTail(r, z) + sa * cosTail(z)));
+    }
+
+    /**
+     * Reduces x by k multiples of pi/256 using the split of pi/256.
+     */
+    private static double reduce(double x, double k) {
+        return (((x - k * PI_1) - k * PI_2) - k * PI_3) - k * PI_3T;
+    }
+
+    /**
+     * sin(r) - r for |r| <= pi/512, where the r^7 term is below 1e-17 relative.
+     */
+    private static double sinTail(double r, double z) {
+        return r * z * (-1.0 / 6 + z * (1.0 / 120));
+    }
+
+    /**
+     * cos(r) - 1 for |r| <= pi/512, where the r^8 term is below 1e-21.
+     */
+    private static double cosTail(double z) {
+        return z * (-0.5 + z * (1.0 / 24 + z * (-1.0 / 720)));
+    }
+
+    /**
+     * Exponential for |x| <= 709, reduced to [-ln2/2, ln2/2] and rescaled by a power of two.
+     */
+    private static double exp(double x) {
+        double k = Math.rint(x * INV_LN2);
+        double hi = x - k * LN2_HI;
+        double lo = k * LN2_LO;
+        double r = hi - lo;
+        double z = r * r;
+        double c = r - z * (P1 + z * (P2 + z * (P3 + z * (P4 + z * P5))));
+        double y = 1.0 - ((lo - (r * c) / (2.0 - c)) - hi);
+        return Math.scalb(y, (int) k);
+    }
+
+    /**
+     * Taylor series of sinh for |x| < 1, accurate to the last term x^19 / 19!.
+     */
+    private static double sinhSeries(double x) {
+        double z = x * x;
+        return x + x * z * (1.0 / 6 + z * (1.0 / 120 + z * (1.0 / 5040 + z * (1.0 / 362880
+                + z * (1.0 / 39916800 + z * (1.0 / 6227020800.0 + z * (1.0 / 1307674368000.0
+                + z * (1.0 / 355687428096000.0 + z * (1.0 / 121645100408832000.0)))))))));
+    }
+}
@@ -0,0 +1,225 @@
+package com.gloatyuk.solvex;
+
+import java.util.*;
+
+/**
+ * Named formulas defined in terms of the session's variables and other formulas,
+ * e.g. "AREA = X*Y".
+ *
+ * Each formula's last result is cached in the values map alongside the variables,
+ * so formulas can be used anywhere a variable can. The graph tracks which formulas
+ * read each name, and when a name changes only the formulas reachable from it are
+ * recomputed, in topological order. An update therefore costs time proportional to
+ * the affected subgraph rather than to the total number of formulas.
+ */
+public class FormulaGraph {
+    // Cached results are written here next to the plain variables
+    private final Map<String, Double> values;
+
+    // Formula name -> original expression and its postfix form
+    private final Map<String, String> expressions = new LinkedHashMap<>();
+    private final Map<String, List<String>> programs = new HashMap<>();
+
+    // Formula name -> names it reads, and name -> formulas that read it
+    private final Map<String, Set<String>> dependencies = new HashMap<>();
+    private final Map<String, Set<String>> dependents = new HashMap<>();
+
+    public FormulaGraph(Map<String, Double> values) {
+        this.values = values;
+    }
+
+    /**
+     * Defines a formula, or replaces an existing definition, and computes its value
+     * along with every formula that depends on it.
+     *
+     * @param name The formula name, letters only
+     * @param expression The expression in infix notation
+     * @return The number of formulas recomputed
+     * @throws IllegalArgumentException if the name is taken, the expression is malformed,
+     *                                  references an unknown name or creates a cycle. The
+     *                                  graph is left unchanged in that case.
+     */
+    public int define(String name, String expression) {
+        name = name.trim().toUpperCase();
+        if (!name.matches("[A-Z]+") || Main.trigFunctions.containsKey(name.toLowerCase())) {
+            throw new IllegalArgumentException("Invalid formula name: " + name);
+        }
+        if (values.containsKey(name) && !expressions.containsKey(name)) {
+            throw new IllegalArgumentException(name + " is already a variable");
+        }
+        List<String> postfix = Main.toPostfix(expression.replaceAll("\\s", ""));
+        checkStackDepth(postfix);
+        Set<String> reads = new HashSet<>();
+        for (String token : postfix) {
+            if (Character.isLetter(token.charAt(0)) && !Main.trigFunctions.containsKey(token)) {
+                if (!values.containsKey(token)) {
+                    throw new IllegalArgumentException("Unknown variable: " + token);
+                }
+                reads.add(token);
+            }
+        }
+        // Reading a name that already depends on this formula would close a loop
+        Set<String> readers = affectedBy(List.of(name));
+        for (String read : reads) {
+            if (read.equals(name) || readers.contains(read)) {
+                throw new IllegalArgumentException("Circular definition: " + name + " depends on itself");
+            }
+        }
+
+        // Evaluate once before touching the graph, so a failure leaves the old definition in place
+        Main.evaluatePostfix(postfix, values);
+
+        unlink(name);
+        expressions.put(name, expression.trim());
+        programs.put(name, postfix);
+        dependencies.put(name, reads);
+        for (String read : reads) {
+            dependents.computeIfAbsent(read, k -> new HashSet<>()).add(name);
+        }
+        return recompute(List.of(name), true);
+    }
+
+    /**
+     * Removes a formula and its cached value.
+     *
+     * @param name The formula name
+     * @throws IllegalArgumentException if there is no such formula or other formulas read it
+     */
+    public void remove(String name) {
+        name = name.trim().toUpperCase();
+        if (!expressions.containsKey(name)) {
+            throw new IllegalArgumentException("Unknown formula: " + name);
+        }
+        Set<String> readers = dependents.getOrDefault(name, Set.of());
+        if (!readers.isEmpty()) {
+            throw new IllegalArgumentException(name + " is used by " + String.join(", ", readers));
+        }
+        unlink(name);
+        dependents.remove(name);
+        expressions.remove(name);
+        programs.remove(name);
+        values.remove(name);
+    }
+
+    /**
+     * Recomputes every formula that depends, directly or indirectly, on a changed
+     * variable. Call this after writing the new value into the values map.
+     *
+     * @param name The variable that changed
+     * @return The number of formulas recomputed
+     */
+    public int update(String name) {
+        return recompute(List.of(name.toUpperCase()), false);
+    }
+
+    /**
+     * Checks whether a name is a defined formula.
+     *
+     * @param name The name to check
+     * @return true if a formula with that name exists
+     */
+    public boolean isFormula(String name) {
+        return expressions.containsKey(name.toUpperCase());
+    }
+
+    /**
+     * Returns the formula definitions in the order they were first defined.
+     *
+     * @return Map of formula name to its infix expression
+     */
+    public Map<String, String> definitions() {
+        return Collections.unmodifiableMap(expressions);
+    }
+
+    /**
+     * Checks that every operator has two operands and the expression leaves exactly one value.
+     */
+    private static void checkStackDepth(List<String> postfix) {
+        int depth = 0;
+        for (String token : postfix) {
+            if (Main.isOperator(token.charAt(0)) && token.length() == 1) {
+                depth -= 1;
+            }
+            else if (!Main.trigFunctions.containsKey(token)) {
+                depth += 1;
+            }
+            if (depth < 1) {
+                break;
+            }
+        }
+        if (depth != 1) {
+            throw new IllegalArgumentException("Malformed expression: " + String.join(" ", postfix));
+        }
+    }
+
+    /**
+     * Recomputes the formulas reachable from the changed names in topological order,
+     * reading cached values for everything outside that set.
+     */
+    private int recompute(List<String> changed, boolean includeChanged) {
+        Set<String> affected = affectedBy(changed);
+        if (includeChanged) {
+            affected.addAll(changed);
+        }
+
+        // Kahn's algorithm restricted to the affected subgraph
+        Map<String, Integer> pending = new HashMap<>();
+        for (String formula : affected) {
+            int count = 0;
+            for (String read : dependencies.get(formula)) {
+                if (affected.contains(read)) {
+                    count++;
+                }
+            }
+            pending.put(formula, count);
+        }
+        Deque<String> ready = new ArrayDeque<>();
+        for (Map.Entry<String, Integer> entry : pending.entrySet()) {
+            if (entry.getValue() == 0) {
+                ready.add(entry.getKey());
+            }
+        }
+        int computed = 0;
+        while (!ready.isEmpty()) {
+            String formula = ready.poll();
+            values.put(formula, Main.evaluatePostfix(programs.get(formula), values));
+            computed++;
+            for (String reader : dependents.getOrDefault(formula, Set.of())) {
+                if (pending.merge(reader, -1, Integer::sum) == 0) {
+                    ready.add(reader);
+                }
+            }
+        }
+        return computed;
+    }
+
+    /**
+     * Collects every formula that reads any of the given names, directly or indirectly.
+     */
+    private Set<String> affectedBy(List<String> names) {
+        Set<String> affected = new HashSet<>();
+        Deque<String> toVisit = new ArrayDeque<>(names);
+        while (!toVisit.isEmpty()) {
+            for (String reader : dependents.getOrDefault(toVisit.poll(), Set.of())) {
+                if (affected.add(reader)) {
+                    toVisit.add(reader);
+                }
+            }
+        }
+        return affected;
+    }
+
+    /**
+     * Removes the edges from a formula to the names it reads.
+     */
+    private void unlink(String name) {
+        for (String read : dependencies.getOrDefault(name, Set.of())) {
+            Set<String> readers = dependents.get(read);
+            readers.remove(name);
+            if (readers.isEmpty()) {
+                dependents.remove(read);
+            }
+        }
+        dependencies.remove(name);
+    }
+}
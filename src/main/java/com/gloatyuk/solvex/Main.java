@@ -1,6 +1,8 @@
 package com.gloatyuk.solvex;
 
+import java.io.IOException;
 import java.math.MathContext;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.function.Function;
 
@@ -61,14 +63,57 @@ public class Main {
                 "arcsech", x -> Math.log(1 / x + Math.sqrt(1 / (x * x) - 1)),
                 "arccoth", x -> 0.5 * Math.log((x + 1) / (x - 1))));
     }
+
+    // Fast approximations used in place of trigFunctions when the fastMath setting is enabled
+    static final Map<String, Function<Double, Double>> fastTrigFunctions = new HashMap<>();
+    static {
+        // Standard trigonometric functions (see FastTrig for error bounds)
+        fastTrigFunctions.putAll(Map.of(
+                "sin", FastTrig::sin, "cos", FastTrig::cos, "tan", FastTrig::tan,
+                "csc", x -> 1 / FastTrig.sin(x),
+                "sec", x -> 1 / FastTrig.cos(x),
+                "cot", x -> 1 / FastTrig.tan(x)));
+
+        // Hyperbolic functions
+        fastTrigFunctions.putAll(Map.of(
+                "sinh", FastTrig::sinh, "cosh", FastTrig::cosh, "tanh", FastTrig::tanh,
+                "csch", x -> 1 / FastTrig.sinh(x),
+                "sech", x -> 1 / FastTrig.cosh(x),
+                "coth", x -> 1 / FastTrig.tanh(x)));
+    }
     // Global variables storage for user-defined variables
     static Map<String, Double> variables = new HashMap<>();
+
+    // Default variable names, all set to 0.0 at startup so equations can use them straight away
+    static final String[] variableNames = {"X", "Y", "Z", "A", "B", "C", "D", "E", "F"};
+    static {
+        for (String name : variableNames) {
+            variables.put(name, 0.0);
+        }
+    }
+
+    // Named formulas over the variables, their cached results are kept in variables
+    static FormulaGraph formulas = new FormulaGraph(variables);
     
     // History stack to store all calculations performed in the session
     static Stack<HistoryEntry> calculationHistory = new Stack<>();
     
     // Application settings (radian mode, precision, etc.)
-    static final Map<String, Boolean> settings = new HashMap<>(Map.of("radianMode", false, "precision", false));
+    static final Map<String, Boolean> settings = new HashMap<>(Map.of("radianMode", false, "precision", false, "fastMath", false, "vectorMode", false));
+
+    /**
+     * Looks up a trigonometric function by name, using the fast approximation when
+     * the fastMath setting is enabled and one exists for that function.
+     *
+     * @param name The function name, e.g. "sin" or "arccosh"
+     * @return The function, or null if no function has that name
+     */
+    public static Function<Double, Double> trigFunction(String name) {
+        if (Boolean.TRUE.equals(settings.get("fastMath")) && fastTrigFunctions.containsKey(name)) {
+            return fastTrigFunctions.get(name);
+        }
+        return trigFunctions.get(name);
+    }
     
     /**
      * Identifies and displays the current operating system.
@@ -110,6 +155,8 @@ public class Main {
         System.out.println("=== Settings Menu ===\n");
         System.out.println("precision - Sets the precision of float outputs\n");
         System.out.println("radianMode - Toggle between Radian and Degree mode\n");
+        System.out.println("fastMath - Toggle fast approximate trig and hyperbolic functions\n");
+        System.out.println("vectorMode - Toggle SIMD evaluation of compiled expressions\n");
         System.out.print("Command: ");
         String command = scanner.nextLine().trim();
         // Handle precision setting (currently not fully implemented)
@@ -130,6 +177,28 @@ public class Main {
             }
             System.out.println("Current Mode: " + currentMode);
         }
+        // Handle fast approximate function toggle
+        else if (command.equalsIgnoreCase("fastMath")) {
+            boolean fastMath = !settings.get("fastMath");
+            settings.put("fastMath", fastMath);
+            if (fastMath) {
+                System.out.println("Fast Math: On (trig results accurate to a few ULP)");
+            }
+            else {
+                System.out.println("Fast Math: Off");
+            }
+        }
+        // Handle SIMD batch evaluation toggle
+        else if (command.equalsIgnoreCase("vectorMode")) {
+            if (!CompiledExpression.isVectorSupported()) {
+                System.out.println("Vector Mode unavailable, restart with --add-modules jdk.incubator.vector");
+            }
+            else {
+                boolean vectorMode = !settings.get("vectorMode");
+                settings.put("vectorMode", vectorMode);
+                System.out.println("Vector Mode: " + (vectorMode ? "On" : "Off"));
+            }
+        }
         else {
             System.out.println("Invalid Command, please try again");
             scanner.nextLine();
@@ -138,20 +207,17 @@ public class Main {
 
     /**
      * Manages user-defined variables (X, Y, Z, A, B, C, D, E, F).
-     * Allows users to edit variable values and recall current values.
+     * Allows users to edit variable values and recall current values, and to define
+     * named formulas that are recomputed whenever a variable they use is edited.
      */
     public static void variables() {
         Scanner scanner = new Scanner(System.in);
-        // Initialize default variable names
-        String[] varNames = {"X", "Y", "Z", "A", "B", "C", "D", "E", "F"};
-        // Set all variables to default value of 0.0
-        for (String name : varNames) {
-            variables.put(name, 0.0);
-        }
         System.out.print("\n");
         System.out.println("=== Variable Menu ===\n");
         System.out.println("edit --VAR - Edit a variable's data");
         System.out.println("recall - Show values of all variables");
+        System.out.println("define NAME = EXPR - Define a formula, e.g. define area = X*Y");
+        System.out.println("remove --NAME - Remove a formula");
         System.out.println("return - Exit variable menu");
         System.out.print("Command: ");
         String command = scanner.nextLine().trim();
@@ -163,9 +229,12 @@ public class Main {
         // Display all variable values
         if (command.equalsIgnoreCase("recall")) {
             System.out.println("Current Variable Values: \n");
-            for (String name : varNames) {
+            for (String name : variableNames) {
                 System.out.println(name + " Value: " + variables.get(name));
             }
+            for (Map.Entry<String, String> formula : formulas.definitions().entrySet()) {
+                System.out.println(formula.getKey() + " = " + formula.getValue() + " Value: " + variables.get(formula.getKey()));
+            }
             System.out.print("Press enter to continue...");
             scanner.nextLine();
             variables();
@@ -173,7 +242,10 @@ public class Main {
         // Handle variable editing with format "edit --VARNAME"
         if (command.toLowerCase().startsWith("edit --")) {
             String varName = command.substring(7).trim().toUpperCase();
-            if (variables.containsKey(varName)) {
+            if (formulas.isFormula(varName)) {
+                System.out.println(varName + " is a formula, use define to change it");
+            }
+            else if (variables.containsKey(varName)) {
                 // Input validation loop for numeric values
                 while (true) {
                     System.out.print("Enter new value for " + varName + ": ");
@@ -181,6 +253,11 @@ public class Main {
                         double newValue = Double.parseDouble(scanner.nextLine().trim());
                         variables.put(varName, newValue);
                         System.out.println(varName + " updated to " + newValue);
+                        // Only formulas that use this variable are recomputed
+                        int updated = formulas.update(varName);
+                        if (updated > 0) {
+                            System.out.println(updated + " formula(s) recalculated");
+                        }
                         break;
                     }
                     catch (NumberFormatException e){
@@ -190,6 +267,28 @@ public class Main {
                 }
             }
         }
+        // Handle formula definitions with format "define NAME = EXPRESSION"
+        if (command.toLowerCase().startsWith("define ") && command.contains("=")) {
+            String name = command.substring(7, command.indexOf('=')).trim();
+            String expression = command.substring(command.indexOf('=') + 1).trim();
+            try {
+                formulas.define(name, expression);
+                System.out.println(name.toUpperCase() + " = " + variables.get(name.toUpperCase()));
+            }
+            catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+            }
+        }
+        // Handle formula removal with format "remove --NAME"
+        if (command.toLowerCase().startsWith("remove --")) {
+            try {
+                formulas.remove(command.substring(9));
+                System.out.println("Formula removed");
+            }
+            catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+            }
+        }
     }
     
     /**
@@ -278,7 +377,7 @@ public class Main {
                     try {
                         double angleValue = scanner.nextDouble();
                         double result;
-                        Function<Double, Double> trigOperation = trigFunctions.get(command);
+                        Function<Double, Double> trigOperation = trigFunction(command);
                         
                         // Apply angle mode conversion if needed
                         if (Boolean.TRUE.equals(settings.get("radianMode"))) {
@@ -410,13 +509,15 @@ public class Main {
     /**
      * Converts infix notation to postfix notation using the Shunting Yard Algorithm.
      * This is crucial for proper order of operations in mathematical expressions.
+     * Names followed by '(' are treated as function calls (e.g. sin(X)), any other
+     * name is a variable reference and is output in upper case.
      * 
      * @param infix The mathematical expression in infix notation
      * @return List of tokens in postfix notation
      */
     public static List<String> toPostfix(String infix) {
         List<String> output = new ArrayList<>();
-        Stack<Character> operators = new Stack<>();
+        Stack<String> operators = new Stack<>();
         int i = 0;
         
         while (i < infix.length()) {
@@ -431,42 +532,75 @@ public class Main {
                 output.add(number.toString());
                 continue;
             }
+            // Handle function names and variables
+            if (Character.isLetter(c)) {
+                StringBuilder name = new StringBuilder();
+                while (i < infix.length() && Character.isLetter(infix.charAt(i))) {
+                    name.append(infix.charAt(i));
+                    i++;
+                }
+                String function = name.toString().toLowerCase();
+                if (i < infix.length() && infix.charAt(i) == '(' && trigFunctions.containsKey(function)) {
+                    operators.push(function);
+                }
+                else {
+                    output.add(name.toString().toUpperCase());
+                }
+                continue;
+            }
             // Handle opening parenthesis
             if (c == '(') {
-                operators.push(c);
+                operators.push("(");
             }
             // Handle closing parenthesis
             else if (c == ')') {
-                while (!operators.isEmpty() && operators.peek() != '(') {
-                    output.add(String.valueOf(operators.pop()));
+                while (!operators.isEmpty() && !operators.peek().equals("(")) {
+                    output.add(operators.pop());
                 }
-                if (!operators.isEmpty() && operators.peek() == '(') {
+                if (!operators.isEmpty() && operators.peek().equals("(")) {
                     operators.pop(); // Remove the opening parenthesis
                 }
+                // A function applies to the bracketed group that was just closed
+                if (!operators.isEmpty() && trigFunctions.containsKey(operators.peek())) {
+                    output.add(operators.pop());
+                }
             }
             // Handle operators based on precedence
             else if (isOperator(c)) {
-                while (!operators.isEmpty() && precedence(operators.peek()) >= precedence(c)) {
-                    output.add(String.valueOf(operators.pop()));
+                while (!operators.isEmpty() && precedence(operators.peek().charAt(0)) >= precedence(c)) {
+                    output.add(operators.pop());
                 }
-                operators.push(c);
+                operators.push(String.valueOf(c));
             }
             i++;
         }
         // Pop remaining operators
         while (!operators.isEmpty()) {
-            output.add(String.valueOf(operators.pop()));
+            output.add(operators.pop());
         }
         return output;
     }
 
     /**
-     * Evaluates a mathematical expression in postfix notation.
+     * Evaluates a mathematical expression in postfix notation, reading variables
+     * from the session's variables.
      * 
      * @param postfix List of tokens in postfix notation
      * @return The calculated result
      */
     public static double evaluatePostfix(List<String> postfix) {
+        return evaluatePostfix(postfix, variables);
+    }
+
+    /**
+     * Evaluates a mathematical expression in postfix notation.
+     * 
+     * @param postfix List of tokens in postfix notation
+     * @param values Variable values to use for variable tokens
+     * @return The calculated result
+     * @throws IllegalArgumentException if a variable has no value
+     */
+    public static double evaluatePostfix(List<String> postfix, Map<String, Double> values) {
         Stack<Double> stack = new Stack<>();
         
         for (String token : postfix) {
@@ -483,6 +617,18 @@ public class Main {
                     case '%' -> stack.push(a%b);
                 }
             }
+            // If token is a function, apply it to the top of the stack
+            else if (trigFunctions.containsKey(token)) {
+                stack.push(trigFunction(token).apply(stack.pop()));
+            }
+            // If token is a variable, push its current value
+            else if (Character.isLetter(token.charAt(0))) {
+                Double value = values.get(token);
+                if (value == null) {
+                    throw new IllegalArgumentException("Unknown variable: " + token);
+                }
+                stack.push(value);
+            }
             // If token is a number, push it onto stack
             else {
                 stack.push(Double.parseDouble(token));
@@ -551,16 +697,27 @@ public class Main {
         Scanner scanner = new Scanner(System.in);
         System.out.println("=== Calculation Menu ===\n");
         System.out.println("Enter 'back' to return to menu");
+        System.out.println("Enter 'table' to evaluate an equation in X over a range of values");
         System.out.println("Please enter equation...");
         System.out.print("Equation: ");
         String equation = scanner.nextLine();
         if (equation.equalsIgnoreCase("back")) {
             menu();
         }
+        if (equation.equalsIgnoreCase("table")) {
+            table();
+            calculate();
+        }
         System.out.println("Calculating...");
-        double result = calculationEngine(equation);
-        calculationHistory.push(new HistoryEntry(equation, Double.toString(result)));
-        System.out.println("Result: " + result);
+        try {
+            double result = calculationEngine(equation);
+            calculationHistory.push(new HistoryEntry(equation, Double.toString(result)));
+            System.out.println("Result: " + result);
+        }
+        catch (IllegalArgumentException e) {
+            // Unknown variables and malformed numbers
+            System.out.println("Invalid entry: " + e.getMessage());
+        }
         
         // Brief pause for user experience
         try {
@@ -572,6 +729,40 @@ public class Main {
         calculate(); // Continue calculation loop
     }
 
+    /**
+     * Evaluates an equation in X over evenly spaced values in one batch, using the
+     * compiled evaluator (and SIMD lanes when vectorMode is enabled).
+     */
+    public static void table() {
+        Scanner scanner = new Scanner(System.in);
+        System.out.print("Equation in X: ");
+        String equation = scanner.nextLine();
+        try {
+            System.out.print("Start: ");
+            double start = Double.parseDouble(scanner.nextLine().trim());
+            System.out.print("End: ");
+            double end = Double.parseDouble(scanner.nextLine().trim());
+            System.out.print("Steps: ");
+            int steps = Math.max(1, Integer.parseInt(scanner.nextLine().trim()));
+
+            double[] inputs = new double[steps + 1];
+            for (int i = 0; i <= steps; i++) {
+                inputs[i] = start + (end - start) * i / steps;
+            }
+            double[] results = CompiledExpression.compile(equation, "X").evaluate(inputs);
+            for (int i = 0; i < inputs.length; i++) {
+                System.out.println("X = " + inputs[i] + "  Result: " + results[i]);
+            }
+            calculationHistory.push(new HistoryEntry(equation + " for X in [" + start + ", " + end + "]",
+                    results.length + " values"));
+        }
+        catch (IllegalArgumentException e) {
+            System.out.println("Invalid entry: " + e.getMessage());
+        }
+        System.out.print("Press enter to continue...");
+        scanner.nextLine();
+    }
+
     /**
      * Handles algebraic calculations including quadratic equations and solving for x.
      */
@@ -625,6 +816,60 @@ public class Main {
         }
     }
     
+    /**
+     * Computes descriptive statistics over a file of numbers too large to load into memory,
+     * optionally passing each value through an expression in terms of X first.
+     */
+    public static void statistics() {
+        Scanner scanner = new Scanner(System.in);
+        System.out.println("=== Statistics Menu ===\n");
+        System.out.println("Reads numbers separated by whitespace or commas, or raw little-endian doubles");
+        System.out.print("File path: ");
+        String path = scanner.nextLine().trim();
+        System.out.print("Binary file? (y/n): ");
+        boolean binary = scanner.nextLine().trim().equalsIgnoreCase("y");
+        System.out.print("Expression to apply to each value X (leave blank for none): ");
+        String equation = scanner.nextLine().trim();
+        System.out.print("Histogram bins: ");
+        int bins;
+        try {
+            bins = Math.max(1, Integer.parseInt(scanner.nextLine().trim()));
+        }
+        catch (NumberFormatException e) {
+            bins = 10;
+        }
+
+        System.out.println("Calculating...");
+        StreamingStats stats;
+        try {
+            CompiledExpression expression = equation.isEmpty() ? null : CompiledExpression.compile(equation, "X");
+            stats = StreamingStats.ofFile(Path.of(path), binary, expression);
+        }
+        catch (IOException | IllegalArgumentException e) {
+            System.out.println("Could not calculate statistics: " + e.getMessage());
+            return;
+        }
+
+        System.out.println("Count: " + stats.count() + " (" + stats.skipped() + " skipped)");
+        System.out.println("Mean: " + stats.mean());
+        System.out.println("Variance: " + stats.variance());
+        System.out.println("Standard Deviation: " + stats.standardDeviation());
+        System.out.println("Min: " + stats.min());
+        System.out.println("Max: " + stats.max());
+        System.out.println("\nApproximate Quantiles:");
+        for (double q : new double[] {0.01, 0.05, 0.25, 0.5, 0.75, 0.95, 0.99}) {
+            System.out.println("  " + (q * 100) + "% - " + stats.quantile(q));
+        }
+        System.out.println("\nApproximate Histogram:");
+        long[] counts = stats.histogram(bins);
+        double width = (stats.max() - stats.min()) / bins;
+        for (int b = 0; b < bins; b++) {
+            System.out.println("  [" + (stats.min() + width * b) + ", " + (stats.min() + width * (b + 1)) + ") " + counts[b]);
+        }
+        String label = equation.isEmpty() ? "stats " + path : "stats " + equation + " over " + path;
+        calculationHistory.push(new HistoryEntry(label, "mean " + stats.mean() + ", sd " + stats.standardDeviation()));
+    }
+
     /**
      * Manages the calculation history functionality.
      * Allows users to view and clear their calculation history.
@@ -683,6 +928,7 @@ public class Main {
         System.out.println("algebra - Opens Algebraic Calculations");
         System.out.println("settings - Opens Settings Menu");
         System.out.println("history - Opens History Menu");
+        System.out.println("stats - Opens Statistics Menu");
         System.out.println("help - Opens Help Menu");
         System.out.println("exit - Exit the program");
         System.out.print("Command: ");
@@ -700,6 +946,7 @@ public class Main {
             //case "help": help(); break;  // Not implemented
             case "exit": exit(0); break;
             case "history": historyMenu(); break;
+            case "stats": statistics(); break;
             default: System.out.println("Invalid Command, please try again");
         }
         
@@ -0,0 +1,330 @@
+package com.gloatyuk.solvex;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.stream.IntStream;
+
+/**
+ * Descriptive statistics computed in a single pass with bounded memory.
+ *
+ * Mean and variance use Welford's method, and partial results from separate chunks
+ * are combined with the parallel merge of Chan et al. Quantiles and histograms come
+ * from a {@link TDigest}, so they are estimates. Everything else is exact.
+ *
+ * Files are read through memory-mapped chunks processed in parallel, each chunk
+ * producing its own StreamingStats that are merged at the end. Two formats are supported:
+ *   text   - numbers separated by whitespace, commas or semicolons (each at most 128 characters)
+ *   binary - raw little-endian 64-bit doubles, trailing bytes that don't make a whole value are ignored
+ * Non-finite values (NaN and infinities), text that isn't a number and expressions that
+ * evaluate to a non-finite value are skipped and counted separately, since a single
+ * infinity would otherwise turn the mean, variance and histogram into NaN.
+ */
+public class StreamingStats {
+    private static final double COMPRESSION = 200;
+
+    // Bytes per mapped chunk, a multiple of 8 so binary chunks hold whole values
+    private static final long CHUNK_SIZE = 64L << 20;
+
+    // Longest text token, a chunk maps this much past its end to finish its last number
+    private static final int MAX_TOKEN_LENGTH = 128;
+
+    // Values collected before being passed through the expression in one batch
+    private static final int BATCH_SIZE = 1 << 16;
+
+    // Exactly representable powers of ten for the fast decimal parsing path
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private long count;
+    private long skipped;
+    private double mean;
+    private double m2;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private final TDigest digest = new TDigest(COMPRESSION);
+
+    /**
+     * Adds a single value.
+     *
+     * @param x The value, NaN and infinities are counted as skipped
+     */
+    public void add(double x) {
+        if (!Double.isFinite(x)) {
+            skipped++;
+            return;
+        }
+        count++;
+        double delta = x - mean;
+        mean += delta / count;
+        m2 += delta * (x - mean);
+        min = Math.min(min, x);
+        max = Math.max(max, x);
+        digest.add(x);
+    }
+
+    /**
+     * Combines another set of statistics into this one, as if all of its values had
+     * been added here.
+     *
+     * @param other The statistics to merge in
+     */
+    public void merge(StreamingStats other) {
+        skipped += other.skipped;
+        if (other.count == 0) {
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        m2 += other.m2 + delta * delta * ((double) count * other.count / total);
+        count = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        digest.merge(other.digest);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long skipped() {
+        return skipped;
+    }
+
+    public double mean() {
+        return count == 0 ? Double.NaN : mean;
+    }
+
+    /**
+     * @return The sample variance, NaN with fewer than two values
+     */
+    public double variance() {
+        return count < 2 ? Double.NaN : m2 / (count - 1);
+    }
+
+    public double standardDeviation() {
+        return Math.sqrt(variance());
+    }
+
+    public double min() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    public double max() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * Estimates the value at a quantile.
+     *
+     * @param q Quantile between 0 and 1, e.g. 0.5 for the median
+     * @return The estimated value
+     */
+    public double quantile(double q) {
+        return digest.quantile(q);
+    }
+
+    /**
+     * Estimates a histogram with equal width bins between min and max.
+     *
+     * @param bins The number of bins
+     * @return Approximate count of values in each bin
+     */
+    public long[] histogram(int bins) {
+        long[] counts = new long[bins];
+        if (count == 0) {
+            return counts;
+        }
+        double width = (max - min) / bins;
+        long assigned = 0;
+        for (int b = 0; b < bins - 1; b++) {
+            long upTo = Math.round(count * digest.cdf(min + width * (b + 1)));
+            counts[b] = Math.max(0, upTo - assigned);
+            assigned += counts[b];
+        }
+        counts[bins - 1] = count - assigned;
+        return counts;
+    }
+
+    /**
+     * Computes statistics over every number in a file.
+     *
+     * @param file The file to read
+     * @param binary true for raw little-endian doubles, false for text
+     * @param expression Expression applied to each value first, or null to use the values as they are
+     * @return The combined statistics
+     * @throws IOException if the file cannot be read
+     */
+    public static StreamingStats ofFile(Path file, boolean binary, CompiledExpression expression) throws IOException {
+        return ofFile(file, binary, expression, CHUNK_SIZE);
+    }
+
+    /**
+     * Computes statistics over every number in a file, mapping it in chunks of the given size.
+     *
+     * @param chunkSize Bytes per chunk, a multiple of 8 for binary files
+     */
+    static StreamingStats ofFile(Path file, boolean binary, CompiledExpression expression, long chunkSize)
+            throws IOException {
+        if (chunkSize <= 0 || (binary && chunkSize % Double.BYTES != 0)) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = binary ? channel.size() - channel.size() % Double.BYTES : channel.size();
+            int chunks = (int) ((size + chunkSize - 1) / chunkSize);
+            return IntStream.range(0, chunks).parallel()
+                    .mapToObj(i -> {
+                        long start = i * chunkSize;
+                        long end = Math.min(size, start + chunkSize);
+                        try {
+                            return binary
+                                    ? readBinaryChunk(channel, start, end, expression)
+                                    : readTextChunk(channel, start, end, channel.size(), expression);
+                        }
+                        catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .collect(StreamingStats::new, StreamingStats::merge, StreamingStats::merge);
+        }
+        catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Reads the doubles in [start, end) of a binary file.
+     */
+    private static StreamingStats readBinaryChunk(FileChannel channel, long start, long end,
+                                                  CompiledExpression expression) throws IOException {
+        StreamingStats stats = new StreamingStats();
+        DoubleBuffer values = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asDoubleBuffer();
+        double[] batch = new double[BATCH_SIZE];
+        while (values.hasRemaining()) {
+            int n = Math.min(batch.length, values.remaining());
+            values.get(batch, 0, n);
+            stats.addBatch(batch, n, expression);
+        }
+        return stats;
+    }
+
+    /**
+     * Reads the numbers that start in [start, end) of a text file. A number that
+     * starts before the chunk and runs into it belongs to the previous chunk, and
+     * the last number may run past the end of the chunk.
+     */
+    private static StreamingStats readTextChunk(FileChannel channel, long start, long end, long fileSize,
+                                                CompiledExpression expression) throws IOException {
+        StreamingStats stats = new StreamingStats();
+        // Map one byte before the chunk to see whether it starts mid-number
+        long mapStart = Math.max(0, start - 1);
+        long mapEnd = Math.min(fileSize, end + MAX_TOKEN_LENGTH);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        int limit = buffer.limit();
+        int chunkEnd = (int) (end - mapStart);
+        int pos = (int) (start - mapStart);
+        if (start > 0 && !isSeparator(buffer.get(pos - 1))) {
+            while (pos < limit && !isSeparator(buffer.get(pos))) {
+                pos++;
+            }
+        }
+
+        double[] batch = new double[BATCH_SIZE];
+        byte[] token = new byte[MAX_TOKEN_LENGTH];
+        int n = 0;
+        while (true) {
+            while (pos < limit && isSeparator(buffer.get(pos))) {
+                pos++;
+            }
+            if (pos >= chunkEnd) {
+                break;
+            }
+            int length = 0;
+            while (pos < limit && !isSeparator(buffer.get(pos))) {
+                if (length < token.length) {
+                    token[length] = buffer.get(pos);
+                }
+                length++;
+                pos++;
+            }
+            batch[n++] = length <= token.length ? parseNumber(token, length) : Double.NaN;
+            if (n == batch.length) {
+                stats.addBatch(batch, n, expression);
+                n = 0;
+            }
+        }
+        stats.addBatch(batch, n, expression);
+        return stats;
+    }
+
+    /**
+     * Adds the first n values of a batch, passing them through the expression if there is one.
+     */
+    private void addBatch(double[] batch, int n, CompiledExpression expression) {
+        if (expression != null) {
+            expression.evaluate(batch, batch, 0, n);
+        }
+        for (int i = 0; i < n; i++) {
+            add(batch[i]);
+        }
+    }
+
+    private static boolean isSeparator(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == ',' || b == ';';
+    }
+
+    /**
+     * Parses a decimal number. Plain decimals with at most 15 digits are parsed
+     * directly, which is exact because both the digits and the power of ten are exactly
+     * representable. Anything else goes through Double.parseDouble.
+     *
+     * @return The parsed value, or NaN if the token is not a number
+     */
+    static double parseNumber(byte[] token, int length) {
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (token[0] == '-' || token[0] == '+')) {
+            negative = token[0] == '-';
+            i++;
+        }
+        long digits = 0;
+        int digitCount = 0;
+        int fractionDigits = -1;
+        for (; i < length; i++) {
+            byte b = token[i];
+            if (b >= '0' && b <= '9' && digitCount < 15) {
+                digits = digits * 10 + (b - '0');
+                digitCount++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            }
+            else if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            }
+            else {
+                break;
+            }
+        }
+        if (i == length && digitCount > 0) {
+            double value = digits / POWERS_OF_TEN[Math.max(0, fractionDigits)];
+            return negative ? -value : value;
+        }
+        try {
+            return Double.parseDouble(new String(token, 0, length, StandardCharsets.ISO_8859_1));
+        }
+        catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.gloatyuk.solvex;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable quantile sketch (merging t-digest) used by {@link StreamingStats}.
+ *
+ * Values are buffered and periodically merged into a sorted list of weighted
+ * centroids. Centroids near the median may hold many values while those near the
+ * tails stay small, so extreme quantiles are estimated more accurately than central
+ * ones. The digest holds at most about compression + 1 centroids however many values
+ * are added, and two digests can be merged without losing those bounds.
+ */
+final class TDigest {
+    private final double compression;
+
+    // Sorted centroids
+    private double[] means;
+    private double[] weights;
+    private int centroids;
+
+    // Unit-weight values waiting to be merged into the centroids
+    private final double[] buffer;
+    private int buffered;
+
+    // Scratch space for merging, swapped with means and weights after each merge
+    private double[] mergeMeans;
+    private double[] mergeWeights;
+
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param compression Trade-off between size and accuracy, 100-300 is typical
+     */
+    TDigest(double compression) {
+        this.compression = compression;
+        this.buffer = new double[(int) (5 * compression)];
+        // The scale function keeps at most about compression + 1 centroids
+        int capacity = buffer.length + (int) Math.ceil(compression) + 2;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.mergeMeans = new double[capacity];
+        this.mergeWeights = new double[capacity];
+    }
+
+    void add(double x) {
+        min = Math.min(min, x);
+        max = Math.max(max, x);
+        buffer[buffered++] = x;
+        totalWeight++;
+        if (buffered == buffer.length) {
+            compress();
+        }
+    }
+
+    void merge(TDigest other) {
+        other.compress();
+        compress();
+        mergeCentroids(other.means, other.weights, other.centroids);
+        totalWeight += other.totalWeight;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Estimates the value at quantile q, interpolating between centroid centres.
+     *
+     * @param q Quantile between 0 and 1
+     * @return The estimated value, or NaN if the digest is empty
+     */
+    double quantile(double q) {
+        compress();
+        if (centroids == 0) {
+            return Double.NaN;
+        }
+        double target = q * totalWeight;
+        int last = centroids - 1;
+        // Between the minimum and the centre of the first centroid
+        if (target < weights[0] / 2) {
+            return min + (means[0] - min) * target / (weights[0] / 2);
+        }
+        double cumulative = 0;
+        for (int i = 0; i < last; i++) {
+            double left = cumulative + weights[i] / 2;
+            double right = cumulative + weights[i] + weights[i + 1] / 2;
+            if (target <= right) {
+                return means[i] + (means[i + 1] - means[i]) * (target - left) / (right - left);
+            }
+            cumulative += weights[i];
+        }
+        // Between the centre of the last centroid and the maximum
+        double lastCentre = totalWeight - weights[last] / 2;
+        return Math.min(max, means[last] + (max - means[last]) * (target - lastCentre) / (weights[last] / 2));
+    }
+
+    /**
+     * Estimates the fraction of values less than or equal to x.
+     *
+     * @param x The value to look up
+     * @return The estimated fraction between 0 and 1
+     */
+    double cdf(double x) {
+        compress();
+        if (centroids == 0 || x < min) {
+            return 0;
+        }
+        if (x >= max) {
+            return 1;
+        }
+        int last = centroids - 1;
+        if (x < means[0]) {
+            return (weights[0] / 2) * (x - min) / (means[0] - min) / totalWeight;
+        }
+        double cumulative = 0;
+        for (int i = 0; i < last; i++) {
+            if (x < means[i + 1]) {
+                double left = cumulative + weights[i] / 2;
+                double right = cumulative + weights[i] + weights[i + 1] / 2;
+                return (left + (right - left) * (x - means[i]) / (means[i + 1] - means[i])) / totalWeight;
+            }
+            cumulative += weights[i];
+        }
+        double lastCentre = totalWeight - weights[last] / 2;
+        return (lastCentre + (weights[last] / 2) * (x - means[last]) / (max - means[last])) / totalWeight;
+    }
+
+    /**
+     * Merges the buffered values into the centroids.
+     */
+    private void compress() {
+        if (buffered == 0) {
+            return;
+        }
+        Arrays.sort(buffer, 0, buffered);
+        mergeCentroids(buffer, null, buffered);
+        buffered = 0;
+    }
+
+    /**
+     * Merges a sorted list of weighted points with the current centroids, then
+     * greedily combines neighbours while they fit within the size limit for their quantile.
+     * A null otherWeights means every point has a weight of one.
+     */
+    private void mergeCentroids(double[] otherMeans, double[] otherWeights, int otherCount) {
+        int n = centroids + otherCount;
+        if (n == 0) {
+            return;
+        }
+        if (n > mergeMeans.length) {
+            // Not expected, the scale function keeps both digests well under the capacity
+            mergeMeans = new double[n];
+            mergeWeights = new double[n];
+        }
+        double[] m = mergeMeans;
+        double[] w = mergeWeights;
+        double total = 0;
+        for (int i = 0, a = 0, b = 0; i < n; i++) {
+            if (b == otherCount || (a < centroids && means[a] <= otherMeans[b])) {
+                m[i] = means[a];
+                w[i] = weights[a++];
+            }
+            else {
+                m[i] = otherMeans[b];
+                w[i] = otherWeights == null ? 1.0 : otherWeights[b];
+                b++;
+            }
+            total += w[i];
+        }
+
+        int out = 0;
+        double soFar = 0;
+        double currentMean = m[0];
+        double currentWeight = w[0];
+        double limit = total * quantileLimit(0);
+        for (int i = 1; i < n; i++) {
+            if (soFar + currentWeight + w[i] <= limit) {
+                currentWeight += w[i];
+                currentMean += (m[i] - currentMean) * w[i] / currentWeight;
+            }
+            else {
+                m[out] = currentMean;
+                w[out++] = currentWeight;
+                soFar += currentWeight;
+                limit = total * quantileLimit(soFar / total);
+                currentMean = m[i];
+                currentWeight = w[i];
+            }
+        }
+        m[out] = currentMean;
+        w[out++] = currentWeight;
+
+        mergeMeans = means;
+        mergeWeights = weights;
+        means = m;
+        weights = w;
+        centroids = out;
+    }
+
+    /**
+     * Returns the highest quantile a centroid starting at q0 may reach, using the
+     * scale function k(q) = compression / (2 pi) * asin(2q - 1) with a step of 1.
+     */
+    private double quantileLimit(double q0) {
+        double k = compression / (2 * Math.PI) * Math.asin(2 * q0 - 1) + 1;
+        if (k >= compression / 4) {
+            return 1;
+        }
+        return (Math.sin(k * 2 * Math.PI / compression) + 1) / 2;
+    }
+}
@@ -0,0 +1,193 @@
+package com.gloatyuk.solvex;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * SIMD backend for {@link CompiledExpression} using the incubating Vector API.
+ *
+ * This class is only loaded once the jdk.incubator.vector module has been found, so
+ * the rest of the application keeps working on JVMs started without it. Functions and
+ * the power operator are evaluated with the Vector API's lane-wise math, which follows
+ * the accuracy of {@link Math} rather than the fastMath setting but may round differently
+ * in the last place. The remainder operator has no lane-wise equivalent, so it falls back
+ * to the scalar loop in {@link CompiledExpression}.
+ */
+final class VectorEvaluator {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    // Lane-wise versions of every function in Main.trigFunctions
+    private static final Map<String, UnaryOperator<DoubleVector>> vectorFunctions = new HashMap<>();
+    static {
+        // Standard trigonometric functions
+        vectorFunctions.putAll(Map.of(
+                "sin", v -> v.lanewise(VectorOperators.SIN),
+                "cos", v -> v.lanewise(VectorOperators.COS),
+                "tan", v -> v.lanewise(VectorOperators.TAN),
+                "csc", v -> reciprocal(v.lanewise(VectorOperators.SIN)),
+                "sec", v -> reciprocal(v.lanewise(VectorOperators.COS)),
+                "cot", v -> reciprocal(v.lanewise(VectorOperators.TAN))));
+
+        // Inverse trigonometric functions
+        vectorFunctions.putAll(Map.of(
+                "arcsin", v -> v.lanewise(VectorOperators.ASIN),
+                "arccos", v -> v.lanewise(VectorOperators.ACOS),
+                "arctan", v -> v.lanewise(VectorOperators.ATAN),
+                "arccsc", v -> reciprocal(v.lanewise(VectorOperators.ASIN)),
+                "arcsec", v -> reciprocal(v.lanewise(VectorOperators.ACOS)),
+                "arccot", v -> reciprocal(v.lanewise(VectorOperators.ATAN))));
+
+        // Hyperbolic functions
+        vectorFunctions.putAll(Map.of(
+                "sinh", v -> v.lanewise(VectorOperators.SINH),
+                "cosh", v -> v.lanewise(VectorOperators.COSH),
+                "tanh", v -> v.lanewise(VectorOperators.TANH),
+                "csch", v -> reciprocal(v.lanewise(VectorOperators.SINH)),
+                "sech", v -> reciprocal(v.lanewise(VectorOperators.COSH)),
+                "coth", v -> reciprocal(v.lanewise(VectorOperators.TANH))));
+
+        // Inverse hyperbolic functions, same formulas as Main.trigFunctions
+        vectorFunctions.putAll(Map.of(
+                "arcsinh", v -> log(v.add(v.mul(v).add(1.0).sqrt())),
+                "arccosh", v -> log(v.add(v.mul(v).sub(1.0).sqrt())),
+                "arctanh", v -> log(v.add(1.0).div(v.neg().add(1.0))).mul(0.5),
+                "arccsch", v -> log(reciprocal(v).add(reciprocal(v.mul(v)).add(1.0).sqrt())),
+                "arcsech", v -> log(reciprocal(v).add(reciprocal(v.mul(v)).sub(1.0).sqrt())),
+                "arccoth", v -> log(v.add(1.0).div(v.sub(1.0))).mul(0.5)));
+    }
+
+    private VectorEvaluator() {}
+
+    /**
+     * Evaluates one block of a compiled program across SIMD lanes, leaving the
+     * results in stack[0].
+     */
+    static void evaluateBlock(CompiledExpression program, double[] inputs, int start, int length,
+                              double[][] stack) {
+        int bound = SPECIES.loopBound(length);
+        int sp = 0;
+        for (int p = 0; p < program.ops.length; p++) {
+            switch (program.ops[p]) {
+                case CompiledExpression.CONST -> {
+                    DoubleVector c = DoubleVector.broadcast(SPECIES, program.constants[p]);
+                    double[] a = stack[sp++];
+                    for (int i = 0; i < bound; i += SPECIES.length()) {
+                        c.intoArray(a, i);
+                    }
+                    Arrays.fill(a, bound, length, program.constants[p]);
+                }
+                case CompiledExpression.INPUT -> System.arraycopy(inputs, start, stack[sp++], 0, length);
+                case CompiledExpression.FUNCTION -> {
+                    double[] a = stack[sp - 1];
+                    UnaryOperator<DoubleVector> function = vectorFunctions.get(program.functionNames[p]);
+                    for (int i = 0; i < bound; i += SPECIES.length()) {
+                        function.apply(DoubleVector.fromArray(SPECIES, a, i)).intoArray(a, i);
+                    }
+                    // Masked operations are slow on JDK 17, so only use them for a partial last vector
+                    if (bound < length) {
+                        VectorMask<Double> tail = SPECIES.indexInRange(bound, length);
+                        function.apply(DoubleVector.fromArray(SPECIES, a, bound, tail)).intoArray(a, bound, tail);
+                    }
+                }
+                case CompiledExpression.MOD -> {
+                    double[] b = stack[--sp];
+                    CompiledExpression.applyBinary(program.ops[p], stack[sp - 1], b, 0, length);
+                }
+                default -> {
+                    double[] b = stack[--sp];
+                    double[] a = stack[sp - 1];
+                    applyBinary(program.ops[p], a, b, bound);
+                    // The tail uses the scalar loops, arithmetic rounds the same either way
+                    CompiledExpression.applyBinary(program.ops[p], a, b, bound, length);
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies a binary operator across a[0, bound) and b[0, bound), storing the result in a.
+     * Each operator gets its own loop so the JIT sees a constant operation to intrinsify.
+     */
+    private static void applyBinary(int op, double[] a, double[] b, int bound) {
+        int step = SPECIES.length();
+        switch (op) {
+            case CompiledExpression.ADD -> {
+                for (int i = 0; i < bound; i += step) {
+                    load(a, i).add(load(b, i)).intoArray(a, i);
+                }
+            }
+            case CompiledExpression.SUB -> {
+                for (int i = 0; i < bound; i += step) {
+                    load(a, i).sub(load(b, i)).intoArray(a, i);
+                }
+            }
+            case CompiledExpression.MUL -> {
+                for (int i = 0; i < bound; i += step) {
+                    load(a, i).mul(load(b, i)).intoArray(a, i);
+                }
+            }
+            case CompiledExpression.DIV -> {
+                for (int i = 0; i < bound; i += step) {
+                    load(a, i).div(load(b, i)).intoArray(a, i);
+                }
+            }
+            default -> {
+                for (int i = 0; i < bound; i += step) {
+                    pow(load(a, i), load(b, i)).intoArray(a, i);
+                }
+            }
+        }
+    }
+
+    private static DoubleVector load(double[] a, int i) {
+        return DoubleVector.fromArray(SPECIES, a, i);
+    }
+
+    /**
+     * Lane-wise {@link Math#pow}. The lane-wise POW takes a slow path for negative bases,
+     * so it is applied to |a| and the sign is fixed up afterwards: a negative finite base
+     * gives NaN unless the exponent is an integer, and a negated result when that integer is odd.
+     */
+    private static DoubleVector pow(DoubleVector a, DoubleVector b) {
+        DoubleVector result = a.abs().lanewise(VectorOperators.POW, b);
+        // The sign bit also catches -0.0 and negative infinity, which follow the odd integer rule
+        VectorMask<Double> negative = a.viewAsIntegralLanes().compare(VectorOperators.LT, 0L).cast(SPECIES);
+        if (!negative.anyTrue()) {
+            return result;
+        }
+        // Rounds |b| below 2^52 to an integer in the low mantissa bits, above that every value is an integer
+        DoubleVector y = b.abs();
+        VectorMask<Double> below = y.compare(VectorOperators.LT, 0x1p52);
+        DoubleVector shifted = y.add(0x1p52);
+        VectorMask<Double> integer = shifted.sub(0x1p52).compare(VectorOperators.EQ, y).or(below.not());
+        VectorMask<Double> odd = y.blend(shifted, below).viewAsIntegralLanes()
+                .and(1L).compare(VectorOperators.NE, 0L).cast(SPECIES)
+                .and(integer)
+                .and(y.compare(VectorOperators.LT, 0x1p53));
+        VectorMask<Double> finiteNegative = a.compare(VectorOperators.LT, 0.0)
+                .and(a.compare(VectorOperators.GT, Double.NEGATIVE_INFINITY));
+        return result.blend(result.neg(), negative.and(odd))
+                .blend(Double.NaN, finiteNegative.andNot(integer));
+    }
+
+    /**
+     * Lane-wise 1 / v.
+     */
+    private static DoubleVector reciprocal(DoubleVector v) {
+        return v.broadcast(1.0).div(v);
+    }
+
+    /**
+     * Lane-wise natural logarithm.
+     */
+    private static DoubleVector log(DoubleVector v) {
+        return v.lanewise(VectorOperators.LOG);
+    }
+}
@@ -0,0 +1,82 @@
+package com.gloatyuk.solvex;
+
+import jdk.incubator.vector.DoubleVector;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Timing comparison of evaluatePostfix, compiled scalar evaluation and compiled SIMD
+ * evaluation, run with
+ * ./gradlew benchmark -Pbenchmark=CompiledExpressionBenchmark
+ *
+ * Each expression is evaluated over 4M inputs and the best of several rounds is
+ * reported per value, along with the SIMD speedup over both scalar paths.
+ */
+public class CompiledExpressionBenchmark {
+    private static final int SIZE = 4_000_000;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        String[] equations = args.length > 0 ? args : new String[] {
+                "X*X+2*X-1", "sin(X)*cos(X)+Y", "tanh(X/10)*arcsinh(X)", "arctanh(X/20)+sec(X)", "X^3-X", "(X/3)^X",
+                "(X^2+1)/(X%3+4)"};
+        Main.variables.put("Y", 3.0);
+        Random random = new Random(3);
+        double[] inputs = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            inputs[i] = (random.nextDouble() - 0.5) * 20;
+        }
+
+        System.out.println("Lanes per vector: " + DoubleVector.SPECIES_PREFERRED.length());
+        System.out.printf("%-24s %10s %10s %10s %10s %10s%n",
+                "ns/value", "postfix", "compiled", "vector", "vs postfix", "vs compiled");
+        for (String equation : equations) {
+            List<String> postfix = Main.toPostfix(equation);
+            CompiledExpression expression = CompiledExpression.compile(equation, "X");
+            double postfixTime = bestPostfix(postfix, inputs);
+            double scalarTime = bestCompiled(expression, inputs, false);
+            double vectorTime = bestCompiled(expression, inputs, true);
+            System.out.printf("%-24s %10.2f %10.2f %10.2f %9.1fx %9.1fx%n", equation,
+                    postfixTime, scalarTime, vectorTime, postfixTime / vectorTime, scalarTime / vectorTime);
+        }
+    }
+
+    /**
+     * Best time per value for evaluatePostfix, binding X through the values map.
+     */
+    private static double bestPostfix(List<String> postfix, double[] inputs) {
+        Map<String, Double> values = new HashMap<>(Main.variables);
+        long best = Long.MAX_VALUE;
+        double sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (double input : inputs) {
+                values.put("X", input);
+                sink += Main.evaluatePostfix(postfix, values);
+            }
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+        return (double) best / inputs.length;
+    }
+
+    /**
+     * Best time per value for the compiled expression with vectorMode on or off.
+     */
+    private static double bestCompiled(CompiledExpression expression, double[] inputs, boolean vector) {
+        Main.settings.put("vectorMode", vector);
+        double[] output = new double[inputs.length];
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            expression.evaluate(inputs, output, 0, inputs.length);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return (double) best / inputs.length;
+    }
+}
@@ -0,0 +1,144 @@
+package com.gloatyuk.solvex;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Checks that compiled evaluation matches evaluatePostfix with vectorMode on and off.
+ */
+class CompiledExpressionTest {
+    // Lengths around the lane counts and the block size so every tail path is exercised
+    private static final int[] LENGTHS = {0, 1, 3, 7, 9, 17, 1023, 1024, 1025, 2051, 5000};
+
+    private static final String[] ARITHMETIC = {
+            "X*X+2*X-1", "(X-3)/(X+0.5)", "X%3+4", "X%(Y+0.5)-X/7", "Y*X-Z"};
+
+    private static final String[] LANE_WISE_MATH = {
+            "sin(X)*cos(X)+Y", "tanh(X/10)*arcsinh(X)", "sec(X)+arctan(X)", "cosh(X/4)-sinh(X/4)",
+            "X^2+1", "X^3-X", "2^X/(X%7+8)", "X^Y-X^0.5", "(X/4)^X"};
+
+    @BeforeEach
+    void setUp() {
+        Main.variables.put("Y", 3.0);
+        Main.variables.put("Z", -1.25);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Main.settings.put("vectorMode", false);
+        Main.variables.clear();
+        for (String name : Main.variableNames) {
+            Main.variables.put(name, 0.0);
+        }
+    }
+
+    @Test
+    void scalarMatchesEvaluatePostfixExactly() {
+        Main.settings.put("vectorMode", false);
+        for (String equation : ARITHMETIC) {
+            assertMatches(equation, 0);
+        }
+        for (String equation : LANE_WISE_MATH) {
+            assertMatches(equation, 0);
+        }
+    }
+
+    @Test
+    void vectorMatchesEvaluatePostfix() {
+        assumeTrue(CompiledExpression.isVectorSupported());
+        Main.settings.put("vectorMode", true);
+        // Arithmetic and % are exact in every lane
+        for (String equation : ARITHMETIC) {
+            assertMatches(equation, 0);
+        }
+        // Lane-wise functions and ^ may round differently from Math by an ULP or two
+        for (String equation : LANE_WISE_MATH) {
+            assertMatches(equation, 1e-13);
+        }
+    }
+
+    @Test
+    void vectorPowMatchesSpecialCases() {
+        assumeTrue(CompiledExpression.isVectorSupported());
+        Main.settings.put("vectorMode", true);
+        double[] bases = {Double.NEGATIVE_INFINITY, -1e300, -3, -2.5, -1, -0.5, -1e-300, -0.0,
+                0.0, 1e-300, 0.5, 1, 2.5, 3, 1e300, Double.POSITIVE_INFINITY, Double.NaN};
+        double[] exponents = {Double.NEGATIVE_INFINITY, -1e300, -0x1p60, -(0x1p52 + 1), -3, -2, -1, -0.5,
+                -0.0, 0.0, 0.5, 1, 2, 3, 2.5, 0x1p52 + 1, 0x1p53, 0x1p60, 1e300,
+                Double.POSITIVE_INFINITY, Double.NaN};
+        // Repeat the bases so they fill whole vectors as well as the tail
+        double[] inputs = new double[bases.length * 8];
+        for (int i = 0; i < inputs.length; i++) {
+            inputs[i] = bases[i % bases.length];
+        }
+        for (double exponent : exponents) {
+            Main.variables.put("Y", exponent);
+            double[] results = CompiledExpression.compile("X^Y", "X").evaluate(inputs);
+            for (int i = 0; i < inputs.length; i++) {
+                double expected = Math.pow(inputs[i], exponent);
+                String message = inputs[i] + "^" + exponent;
+                if (expected == 0 || Double.isNaN(expected) || Double.isInfinite(expected)) {
+                    assertEquals(expected, results[i], message);
+                }
+                else {
+                    assertEquals(expected, results[i], 1e-13 * Math.abs(expected), message);
+                }
+            }
+        }
+    }
+
+    @Test
+    void evaluatesSubrange() {
+        CompiledExpression expression = CompiledExpression.compile("X*2", "X");
+        double[] inputs = {1, 2, 3, 4, 5};
+        double[] output = new double[5];
+        expression.evaluate(inputs, output, 1, 4);
+        assertArrayEquals(new double[] {0, 4, 6, 8, 0}, output);
+    }
+
+    @Test
+    void defaultVariablesStartAtZero() {
+        assertEquals(0.0, Main.calculationEngine("X*2+F"));
+        assertThrows(IllegalArgumentException.class, () -> Main.calculationEngine("W+1"));
+    }
+
+    @Test
+    void rejectsMalformedExpressions() {
+        assertThrows(IllegalArgumentException.class, () -> CompiledExpression.compile("X+", "X"));
+        assertThrows(IllegalArgumentException.class, () -> CompiledExpression.compile("X+W", "X"));
+    }
+
+    private static void assertMatches(String equation, double relativeTolerance) {
+        List<String> postfix = Main.toPostfix(equation);
+        CompiledExpression expression = CompiledExpression.compile(equation, "X");
+        Random random = new Random(equation.hashCode());
+        Map<String, Double> values = new HashMap<>(Main.variables);
+        for (int length : LENGTHS) {
+            double[] inputs = new double[length];
+            for (int i = 0; i < length; i++) {
+                inputs[i] = (random.nextDouble() - 0.5) * 20;
+            }
+            double[] results = expression.evaluate(inputs);
+            for (int i = 0; i < length; i++) {
+                values.put("X", inputs[i]);
+                double expected = Main.evaluatePostfix(postfix, values);
+                String message = equation + " at X=" + inputs[i] + " (length " + length + ")";
+                if (relativeTolerance == 0 || Double.isNaN(expected) || Double.isInfinite(expected)) {
+                    assertEquals(expected, results[i], message);
+                }
+                else {
+                    assertEquals(expected, results[i], relativeTolerance * Math.max(1, Math.abs(expected)), message);
+                }
+            }
+        }
+    }
+}
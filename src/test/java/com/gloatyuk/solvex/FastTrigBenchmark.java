@@ -0,0 +1,68 @@
+package com.gloatyuk.solvex;
+
+import java.util.Random;
+
+/**
+ * Timing comparison of FastTrig against Math, run with
+ * ./gradlew benchmark -Pbenchmark=FastTrigBenchmark
+ *
+ * Each function is applied to 10M random inputs and the best of several rounds is
+ * reported, so the JIT has compiled both versions before the measured rounds. Every
+ * function has its own loop so each call is inlined rather than dispatched through a
+ * shared call site.
+ */
+public class FastTrigBenchmark {
+    private static final int SIZE = 10_000_000;
+    private static final int ROUNDS = 7;
+
+    public static void main(String[] args) {
+        Random random = new Random(2);
+        double[] angles = new double[SIZE];
+        double[] small = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            angles[i] = (random.nextDouble() - 0.5) * 100;
+            small[i] = (random.nextDouble() - 0.5) * 10;
+        }
+        double[] output = new double[SIZE];
+
+        System.out.printf("%-6s %12s %12s %8s%n", "", "Math ns/op", "Fast ns/op", "Speedup");
+        String[] names = {"sin", "cos", "tan", "sinh", "cosh", "tanh"};
+        for (int f = 0; f < names.length; f++) {
+            double[] inputs = f < 3 ? angles : small;
+            double mathTime = best(f, false, inputs, output);
+            double fastTime = best(f, true, inputs, output);
+            System.out.printf("%-6s %12.2f %12.2f %7.2fx%n", names[f], mathTime, fastTime, mathTime / fastTime);
+        }
+    }
+
+    /**
+     * Returns the best time per value over all rounds, in nanoseconds.
+     */
+    private static double best(int function, boolean fast, double[] inputs, double[] output) {
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            run(function, fast, inputs, output);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return (double) best / inputs.length;
+    }
+
+    private static void run(int function, boolean fast, double[] in, double[] out) {
+        int n = in.length;
+        switch (function * 2 + (fast ? 1 : 0)) {
+            case 0 -> { for (int i = 0; i < n; i++) out[i] = Math.sin(in[i]); }
+            case 1 -> { for (int i = 0; i < n; i++) out[i] = FastTrig.sin(in[i]); }
+            case 2 -> { for (int i = 0; i < n; i++) out[i] = Math.cos(in[i]); }
+            case 3 -> { for (int i = 0; i < n; i++) out[i] = FastTrig.cos(in[i]); }
+            case 4 -> { for (int i = 0; i < n; i++) out[i] = Math.tan(in[i]); }
+            case 5 -> { for (int i = 0; i < n; i++) out[i] = FastTrig.tan(in[i]); }
+            case 6 -> { for (int i = 0; i < n; i++) out[i] = Math.sinh(in[i]); }
+            case 7 -> { for (int i = 0; i < n; i++) out[i] = FastTrig.sinh(in[i]); }
+            case 8 -> { for (int i = 0; i < n; i++) out[i] = Math.cosh(in[i]); }
+            case 9 -> { for (int i = 0; i < n; i++) out[i] = FastTrig.cosh(in[i]); }
+            case 10 -> { for (int i = 0; i < n; i++) out[i] = Math.tanh(in[i]); }
+            default -> { for (int i = 0; i < n; i++) out[i] = FastTrig.tanh(in[i]); }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.gloatyuk.solvex;
+
+import ch.obermuhlner.math.big.BigDecimalMath;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Random;
+import java.util.function.DoubleUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks FastTrig against Math and BigDecimalMath using the error bounds in its class comment.
+ */
+class FastTrigTest {
+    private static final int SAMPLES = 200_000;
+    private static final MathContext REFERENCE = new MathContext(40);
+
+    @Test
+    void sinWithinTwoUlp() {
+        assertWithin(FastTrig::sin, Math::sin, -0x1p20, 0x1p20, 2);
+        assertWithin(FastTrig::sin, Math::sin, -10, 10, 2);
+    }
+
+    @Test
+    void cosWithinTwoUlp() {
+        assertWithin(FastTrig::cos, Math::cos, -0x1p20, 0x1p20, 2);
+        assertWithin(FastTrig::cos, Math::cos, -10, 10, 2);
+    }
+
+    @Test
+    void tanWithinFourUlp() {
+        assertWithin(FastTrig::tan, Math::tan, -0x1p20, 0x1p20, 4);
+        assertWithin(FastTrig::tan, Math::tan, -10, 10, 4);
+    }
+
+    @Test
+    void hyperbolicWithinBounds() {
+        assertWithin(FastTrig::sinh, Math::sinh, -709, 709, 2);
+        assertWithin(FastTrig::sinh, Math::sinh, -2, 2, 2);
+        assertWithin(FastTrig::cosh, Math::cosh, -709, 709, 1);
+        assertWithin(FastTrig::cosh, Math::cosh, -2, 2, 1);
+        assertWithin(FastTrig::tanh, Math::tanh, -30, 30, 4);
+        assertWithin(FastTrig::tanh, Math::tanh, -2, 2, 4);
+    }
+
+    @Test
+    void nearMultiplesOfHalfPi() {
+        Random random = new Random(7);
+        for (int i = 0; i < SAMPLES; i++) {
+            double x = random.nextInt(600_000) * (Math.PI / 2) + (random.nextDouble() - 0.5) * 1e-6;
+            assertClose(FastTrig.sin(x), Math.sin(x), 2, "sin", x);
+            assertClose(FastTrig.cos(x), Math.cos(x), 2, "cos", x);
+        }
+    }
+
+    @Test
+    void nearTableNodes() {
+        // Where x is close to a multiple of pi/256 the table value dominates the result
+        Random random = new Random(13);
+        for (int i = 0; i < SAMPLES; i++) {
+            double x = (random.nextInt(2_000_000) - 1_000_000) * (Math.PI / 256) + (random.nextDouble() - 0.5) * 1e-9;
+            assertClose(FastTrig.sin(x), Math.sin(x), 2, "sin", x);
+            assertClose(FastTrig.cos(x), Math.cos(x), 2, "cos", x);
+            assertClose(FastTrig.tan(x), Math.tan(x), 4, "tan", x);
+        }
+    }
+
+    @Test
+    void smallArguments() {
+        Random random = new Random(17);
+        for (int i = 0; i < SAMPLES; i++) {
+            double x = Math.scalb(random.nextDouble() - 0.5, -random.nextInt(40));
+            assertClose(FastTrig.sin(x), Math.sin(x), 2, "sin", x);
+            assertClose(FastTrig.cos(x), Math.cos(x), 2, "cos", x);
+            assertClose(FastTrig.tan(x), Math.tan(x), 4, "tan", x);
+            assertClose(FastTrig.sinh(x), Math.sinh(x), 2, "sinh", x);
+            assertClose(FastTrig.tanh(x), Math.tanh(x), 4, "tanh", x);
+        }
+    }
+
+    @Test
+    void matchesBigDecimalMath() {
+        Random random = new Random(11);
+        for (int i = 0; i < 2_000; i++) {
+            double x = (random.nextDouble() - 0.5) * 200;
+            BigDecimal big = new BigDecimal(x);
+            // One more ULP than against Math, which is itself within 1 ULP of the true value
+            assertClose(FastTrig.sin(x), BigDecimalMath.sin(big, REFERENCE).doubleValue(), 3, "sin", x);
+            assertClose(FastTrig.cos(x), BigDecimalMath.cos(big, REFERENCE).doubleValue(), 3, "cos", x);
+            double h = x / 20;
+            BigDecimal bigH = new BigDecimal(h);
+            assertClose(FastTrig.sinh(h), BigDecimalMath.sinh(bigH, REFERENCE).doubleValue(), 3, "sinh", h);
+            assertClose(FastTrig.cosh(h), BigDecimalMath.cosh(bigH, REFERENCE).doubleValue(), 2, "cosh", h);
+            assertClose(FastTrig.tanh(h), BigDecimalMath.tanh(bigH, REFERENCE).doubleValue(), 5, "tanh", h);
+        }
+    }
+
+    @Test
+    void signedZeros() {
+        for (DoubleUnaryOperator f : new DoubleUnaryOperator[] {
+                FastTrig::sin, FastTrig::tan, FastTrig::sinh, FastTrig::tanh}) {
+            assertEquals(0.0, f.applyAsDouble(0.0));
+            assertEquals(-0.0, f.applyAsDouble(-0.0));
+        }
+        assertEquals(1.0, FastTrig.cos(-0.0));
+        assertEquals(1.0, FastTrig.cosh(-0.0));
+        assertEquals(-0x1p-30, FastTrig.sin(-0x1p-30));
+    }
+
+    @Test
+    void nanAndInfinity() {
+        for (double x : new double[] {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}) {
+            assertTrue(Double.isNaN(FastTrig.sin(x)));
+            assertTrue(Double.isNaN(FastTrig.cos(x)));
+            assertTrue(Double.isNaN(FastTrig.tan(x)));
+        }
+        assertTrue(Double.isNaN(FastTrig.sinh(Double.NaN)));
+        assertTrue(Double.isNaN(FastTrig.cosh(Double.NaN)));
+        assertTrue(Double.isNaN(FastTrig.tanh(Double.NaN)));
+        assertEquals(Double.POSITIVE_INFINITY, FastTrig.sinh(Double.POSITIVE_INFINITY));
+        assertEquals(Double.NEGATIVE_INFINITY, FastTrig.sinh(Double.NEGATIVE_INFINITY));
+        assertEquals(Double.POSITIVE_INFINITY, FastTrig.cosh(Double.NEGATIVE_INFINITY));
+        assertEquals(1.0, FastTrig.tanh(Double.POSITIVE_INFINITY));
+        assertEquals(-1.0, FastTrig.tanh(Double.NEGATIVE_INFINITY));
+    }
+
+    @Test
+    void fallbackLimits() {
+        for (double x : new double[] {0x1p20, Math.nextDown(0x1p20), Math.nextUp(0x1p20), -0x1p20, 1e10, -1e300}) {
+            assertClose(FastTrig.sin(x), Math.sin(x), 2, "sin", x);
+            assertClose(FastTrig.cos(x), Math.cos(x), 2, "cos", x);
+            assertClose(FastTrig.tan(x), Math.tan(x), 4, "tan", x);
+        }
+        for (double x : new double[] {709, Math.nextDown(709), Math.nextUp(709), 709.7, 710, -709, -710}) {
+            assertClose(FastTrig.sinh(x), Math.sinh(x), 2, "sinh", x);
+            assertClose(FastTrig.cosh(x), Math.cosh(x), 1, "cosh", x);
+            assertClose(FastTrig.tanh(x), Math.tanh(x), 4, "tanh", x);
+        }
+        assertEquals(Double.POSITIVE_INFINITY, FastTrig.cosh(711));
+    }
+
+    /**
+     * Compares fast and reference functions on uniformly random inputs.
+     */
+    private static void assertWithin(DoubleUnaryOperator fast, DoubleUnaryOperator reference,
+                                     double low, double high, double maxUlps) {
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            double x = low + (high - low) * random.nextDouble();
+            assertClose(fast.applyAsDouble(x), reference.applyAsDouble(x), maxUlps, "f", x);
+        }
+    }
+
+    private static void assertClose(double actual, double expected, double maxUlps, String name, double x) {
+        if (Double.isInfinite(expected) || Double.isNaN(expected)) {
+            assertEquals(expected, actual, name + "(" + x + ")");
+            return;
+        }
+        double error = Math.abs(actual - expected);
+        assertTrue(error <= maxUlps * Math.ulp(expected), name + "(" + x + ") = " + actual + ", expected " + expected);
+    }
+}
@@ -0,0 +1,152 @@
+package com.gloatyuk.solvex;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FormulaGraphTest {
+    private Map<String, Double> values;
+    private FormulaGraph graph;
+
+    @BeforeEach
+    void setUp() {
+        values = new HashMap<>();
+        for (String name : new String[] {"X", "Y", "Z", "A", "B", "C", "D", "E", "F"}) {
+            values.put(name, 0.0);
+        }
+        graph = new FormulaGraph(values);
+    }
+
+    @Test
+    void definesAndUpdatesFormulas() {
+        values.put("X", 2.0);
+        values.put("Y", 3.0);
+        assertEquals(1, graph.define("area", "X*Y"));
+        assertEquals(6.0, values.get("AREA"));
+
+        values.put("X", 5.0);
+        assertEquals(1, graph.update("X"));
+        assertEquals(15.0, values.get("AREA"));
+    }
+
+    @Test
+    void recomputesOnlyAffectedFormulas() {
+        graph.define("P", "X+1");
+        graph.define("Q", "P*2");
+        graph.define("R", "Y+1");
+        graph.define("S", "Z+Y");
+
+        values.put("X", 4.0);
+        assertEquals(2, graph.update("X"));
+        assertEquals(5.0, values.get("P"));
+        assertEquals(10.0, values.get("Q"));
+        assertEquals(0, graph.update("A"));
+        assertEquals(2, graph.update("Y"));
+    }
+
+    @Test
+    void diamondIsComputedInTopologicalOrder() {
+        // TOP reads LEFT and RIGHT, which both read BASE
+        graph.define("BASE", "X*2");
+        graph.define("LEFT", "BASE+1");
+        graph.define("RIGHT", "BASE*3");
+        graph.define("TOP", "LEFT+RIGHT");
+
+        values.put("X", 1.0);
+        assertEquals(4, graph.update("X"));
+        assertEquals(2.0, values.get("BASE"));
+        assertEquals(3.0, values.get("LEFT"));
+        assertEquals(6.0, values.get("RIGHT"));
+        assertEquals(9.0, values.get("TOP"));
+    }
+
+    @Test
+    void largeGraphUpdatesOnlyTheAffectedChain() {
+        String previous = "X";
+        for (int i = 0; i < 5000; i++) {
+            String name = "CHAIN" + letters(i);
+            graph.define(name, previous + "+1");
+            previous = name;
+        }
+        for (int i = 0; i < 20000; i++) {
+            graph.define("OTHER" + letters(i), "Y*2+A");
+        }
+
+        values.put("X", 1.0);
+        assertEquals(5000, graph.update("X"));
+        assertEquals(5001.0, values.get(previous));
+        assertEquals(20000, graph.update("A"));
+        assertEquals(0, graph.update("Z"));
+    }
+
+    @Test
+    void rejectsCycles() {
+        graph.define("P", "X+1");
+        graph.define("Q", "P+1");
+        assertThrows(IllegalArgumentException.class, () -> graph.define("P", "Q+1"));
+        assertThrows(IllegalArgumentException.class, () -> graph.define("R", "R+1"));
+        // The rejected definition leaves the old one in place
+        assertEquals("X+1", graph.definitions().get("P"));
+        values.put("X", 1.0);
+        assertEquals(2, graph.update("X"));
+        assertEquals(3.0, values.get("Q"));
+    }
+
+    @Test
+    void redefiningChangesDependencies() {
+        graph.define("P", "X+1");
+        graph.define("Q", "P*2");
+        graph.define("P", "Y+1");
+
+        values.put("X", 10.0);
+        assertEquals(0, graph.update("X"));
+        values.put("Y", 4.0);
+        assertEquals(2, graph.update("Y"));
+        assertEquals(5.0, values.get("P"));
+        assertEquals(10.0, values.get("Q"));
+    }
+
+    @Test
+    void removeRefusesWhileReferenced() {
+        graph.define("P", "X+1");
+        graph.define("Q", "P*2");
+        assertThrows(IllegalArgumentException.class, () -> graph.remove("P"));
+        graph.remove("Q");
+        graph.remove("P");
+        assertFalse(graph.isFormula("P"));
+        assertFalse(values.containsKey("P"));
+        assertEquals(0, graph.update("X"));
+    }
+
+    @Test
+    void malformedDefinitionLeavesGraphUnchanged() {
+        graph.define("P", "X+1");
+        assertThrows(IllegalArgumentException.class, () -> graph.define("BAD", "X+"));
+        assertThrows(IllegalArgumentException.class, () -> graph.define("P", "*X"));
+        assertThrows(IllegalArgumentException.class, () -> graph.define("BAD", "sin()"));
+        assertThrows(IllegalArgumentException.class, () -> graph.define("BAD", "W+1"));
+        assertThrows(IllegalArgumentException.class, () -> graph.define("X", "Y+1"));
+        assertFalse(graph.isFormula("BAD"));
+        assertEquals("X+1", graph.definitions().get("P"));
+
+        values.put("X", 1.0);
+        assertEquals(1, graph.update("X"));
+        assertEquals(2.0, values.get("P"));
+    }
+
+    /**
+     * Formula names are letters only, so counters are written in base 26.
+     */
+    private static String letters(int i) {
+        StringBuilder name = new StringBuilder();
+        do {
+            name.append((char) ('A' + i % 26));
+            i /= 26;
+        } while (i > 0);
+        return name.toString();
+    }
+}
@@ -0,0 +1,181 @@
+package com.gloatyuk.solvex;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingStatsTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void parsesNumbers() {
+        assertEquals(-12.5, parse("-12.5"));
+        assertEquals(3.0, parse("+3"));
+        assertEquals(1.0, parse("1."));
+        assertEquals(0.5, parse(".5"));
+        assertEquals(-0.0, parse("-0"));
+        assertEquals(0.1, parse("0.1"));
+        assertEquals(123456789012345.0, parse("123456789012345"));
+        assertEquals(0.123456789012345, parse("0.123456789012345"));
+        // More than 15 digits and exponents go through Double.parseDouble
+        assertEquals(1234567890123456789.0, parse("1234567890123456789"));
+        assertEquals(0.1234567890123456789, parse("0.1234567890123456789"));
+        assertEquals(1e5, parse("1e5"));
+        assertEquals(-2.5e-3, parse("-2.5E-3"));
+        assertEquals(Double.POSITIVE_INFINITY, parse("Infinity"));
+        for (String bad : new String[] {"", ".", "-", "+", "1.2.3", "abc", "1e", "--1"}) {
+            assertTrue(Double.isNaN(parse(bad)), bad);
+        }
+    }
+
+    @Test
+    void fastPathMatchesParseDouble() {
+        Random random = new Random(5);
+        for (int i = 0; i < 100_000; i++) {
+            String text = Long.toString(random.nextLong() % 1_000_000_000_000_000L);
+            int point = random.nextInt(text.length() + 1);
+            if (text.charAt(0) != '-' || point > 0) {
+                text = text.substring(0, point) + "." + text.substring(point);
+            }
+            assertEquals(Double.parseDouble(text), parse(text), text);
+        }
+    }
+
+    @Test
+    void mergeMatchesSequentialAdds() {
+        Random random = new Random(9);
+        StreamingStats all = new StreamingStats();
+        StreamingStats left = new StreamingStats();
+        StreamingStats right = new StreamingStats();
+        for (int i = 0; i < 100_000; i++) {
+            // A large offset makes a naive sum of squares lose most of its digits
+            double x = 1e9 + random.nextGaussian() * 3;
+            all.add(x);
+            (i % 3 == 0 ? left : right).add(x);
+        }
+        left.merge(right);
+        left.merge(new StreamingStats());
+        assertEquals(all.count(), left.count());
+        assertEquals(all.mean(), left.mean(), 1e-14 * all.mean());
+        assertEquals(all.variance(), left.variance(), 1e-6 * all.variance());
+        assertEquals(9.0, left.variance(), 0.1);
+        assertEquals(all.min(), left.min());
+        assertEquals(all.max(), left.max());
+        assertEquals(all.quantile(0.5), left.quantile(0.5), 0.05);
+    }
+
+    @Test
+    void skipsNonFiniteValues() {
+        StreamingStats stats = new StreamingStats();
+        stats.add(1);
+        stats.add(Double.NaN);
+        stats.add(Double.POSITIVE_INFINITY);
+        stats.add(Double.NEGATIVE_INFINITY);
+        stats.add(3);
+        assertEquals(2, stats.count());
+        assertEquals(3, stats.skipped());
+        assertEquals(2.0, stats.mean());
+        assertEquals(3.0, stats.max());
+        assertEquals(3.0, stats.quantile(1));
+    }
+
+    @Test
+    void skipsNonFiniteValuesInFiles() throws IOException {
+        Path file = write("1 Infinity 2 oops 0 -Infinity NaN 4");
+        StreamingStats stats = StreamingStats.ofFile(file, false, null);
+        assertEquals(4, stats.count());
+        assertEquals(4, stats.skipped());
+        assertEquals(1.75, stats.mean());
+
+        // 1/X is infinite at X = 0 and finite at both infinities
+        StreamingStats inverted = StreamingStats.ofFile(file, false, CompiledExpression.compile("1/X", "X"));
+        assertEquals(5, inverted.count());
+        assertEquals(3, inverted.skipped());
+        assertEquals(0.35, inverted.mean(), 1e-15);
+    }
+
+    @Test
+    void textChunkBoundariesDoNotSplitNumbers() throws IOException {
+        Random random = new Random(4);
+        StringBuilder text = new StringBuilder();
+        String[] separators = {" ", "\n", "\r\n", "\t", ",", ";", ", ", "  "};
+        double sum = 0;
+        int count = 300;
+        for (int i = 0; i < count; i++) {
+            double x = Math.round((random.nextDouble() - 0.5) * 2e6) / 1000.0;
+            sum += x;
+            text.append(separators[random.nextInt(separators.length)]).append(x);
+        }
+        // No trailing separator, so the last number runs to the end of the file
+        Path file = write(text.toString());
+        StreamingStats whole = StreamingStats.ofFile(file, false, null);
+        assertEquals(count, whole.count());
+        assertEquals(0, whole.skipped());
+        assertEquals(sum / count, whole.mean(), 1e-9);
+
+        for (long chunkSize = 1; chunkSize <= 20; chunkSize++) {
+            assertSameStats(whole, StreamingStats.ofFile(file, false, null, chunkSize), "chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    void binaryChunks() throws IOException {
+        int count = 1000;
+        ByteBuffer bytes = ByteBuffer.allocate(count * Double.BYTES + 5).order(ByteOrder.LITTLE_ENDIAN);
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            bytes.putDouble(i * 0.5);
+            sum += i * 0.5;
+        }
+        // The trailing partial value is ignored
+        Path file = directory.resolve("values.bin");
+        Files.write(file, bytes.array());
+
+        StreamingStats whole = StreamingStats.ofFile(file, true, null);
+        assertEquals(count, whole.count());
+        assertEquals(sum / count, whole.mean());
+        assertEquals(499.5, whole.max());
+        for (long chunkSize : new long[] {8, 24, 64, 8000}) {
+            assertSameStats(whole, StreamingStats.ofFile(file, true, null, chunkSize), "chunk size " + chunkSize);
+        }
+        assertThrows(IllegalArgumentException.class, () -> StreamingStats.ofFile(file, true, null, 12));
+        assertThrows(IllegalArgumentException.class, () -> StreamingStats.ofFile(file, false, null, 0));
+    }
+
+    @Test
+    void emptyFile() throws IOException {
+        StreamingStats stats = StreamingStats.ofFile(write(""), false, null, 4);
+        assertEquals(0, stats.count());
+        assertTrue(Double.isNaN(stats.quantile(0.5)));
+    }
+
+    private Path write(String text) throws IOException {
+        Path file = directory.resolve("values.txt");
+        Files.write(file, text.getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+
+    private static double parse(String text) {
+        byte[] token = text.getBytes(StandardCharsets.US_ASCII);
+        return StreamingStats.parseNumber(token, token.length);
+    }
+
+    private static void assertSameStats(StreamingStats expected, StreamingStats actual, String message) {
+        assertEquals(expected.count(), actual.count(), message);
+        assertEquals(expected.skipped(), actual.skipped(), message);
+        assertEquals(expected.mean(), actual.mean(), 1e-9 * Math.max(1, Math.abs(expected.mean())), message);
+        assertEquals(expected.variance(), actual.variance(), 1e-9 * expected.variance(), message);
+        assertEquals(expected.min(), actual.min(), message);
+        assertEquals(expected.max(), actual.max(), message);
+    }
+}
@@ -0,0 +1,105 @@
+package com.gloatyuk.solvex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks t-digest quantiles against the exact quantiles of the sorted values.
+ */
+class TDigestTest {
+    private static final int SIZE = 1_000_000;
+    private static final double[] QUANTILES = {0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999};
+
+    @Test
+    void normalQuantiles() {
+        Random random = new Random(1);
+        double[] values = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            values[i] = random.nextGaussian();
+        }
+        assertRankError(values, 200);
+    }
+
+    @Test
+    void skewedQuantiles() {
+        Random random = new Random(2);
+        double[] values = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            values[i] = Math.exp(random.nextGaussian() * 2);
+        }
+        assertRankError(values, 200);
+    }
+
+    @Test
+    void mergedDigestsMatchOne() {
+        Random random = new Random(3);
+        double[] values = new double[SIZE];
+        TDigest merged = new TDigest(200);
+        TDigest part = new TDigest(200);
+        for (int i = 0; i < SIZE; i++) {
+            values[i] = random.nextGaussian();
+            part.add(values[i]);
+            if (i % 10_000 == 9_999) {
+                merged.merge(part);
+                part = new TDigest(200);
+            }
+        }
+        Arrays.sort(values);
+        for (double q : QUANTILES) {
+            assertEquals(q, rank(values, merged.quantile(q)), tolerance(q), "q = " + q);
+            assertEquals(q, merged.cdf(values[(int) (q * SIZE)]), tolerance(q), "cdf at q = " + q);
+        }
+    }
+
+    @Test
+    void extremesAndSmallInputs() {
+        TDigest digest = new TDigest(200);
+        assertTrue(Double.isNaN(digest.quantile(0.5)));
+        assertEquals(0, digest.cdf(1));
+        digest.add(5);
+        assertEquals(5.0, digest.quantile(0));
+        assertEquals(5.0, digest.quantile(0.5));
+        assertEquals(5.0, digest.quantile(1));
+        for (int i = 1; i <= 100; i++) {
+            digest.add(i);
+        }
+        assertEquals(1.0, digest.quantile(0));
+        assertEquals(100.0, digest.quantile(1));
+        assertEquals(0, digest.cdf(0.5));
+        assertEquals(1, digest.cdf(100));
+        assertEquals(50.5, digest.quantile(0.5), 1);
+    }
+
+    private static void assertRankError(double[] values, double compression) {
+        TDigest digest = new TDigest(compression);
+        for (double x : values) {
+            digest.add(x);
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : QUANTILES) {
+            assertEquals(q, rank(sorted, digest.quantile(q)), tolerance(q), "q = " + q);
+        }
+    }
+
+    /**
+     * Allowed rank error at quantile q. The digest keeps small centroids at the tails,
+     * so the bound shrinks towards the extremes, where the measured error is below 1e-4.
+     */
+    private static double tolerance(double q) {
+        return Math.min(1e-3, Math.max(2e-4, 0.1 * Math.min(q, 1 - q)));
+    }
+
+    /**
+     * Fraction of the sorted values that are less than or equal to x.
+     */
+    private static double rank(double[] sorted, double x) {
+        int index = Arrays.binarySearch(sorted, x);
+        int below = index >= 0 ? index + 1 : -index - 1;
+        return (double) below / sorted.length;
+    }
+}